@@ -0,0 +1,18 @@
+package org.example.amorauth.common.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Instructions 注入当前登录用户的控制器参数
+ * 参数类型为 AuthenticatedUser 时直接取登录主体中的内部用户ID、Google ID和资料版本号，不访问缓存和数据库；
+ * 参数类型为 User 时才按Google ID读取完整的用户资料。未登录时为 null
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
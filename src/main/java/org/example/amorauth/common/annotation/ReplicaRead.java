@@ -0,0 +1,22 @@
+package org.example.amorauth.common.annotation;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Instructions 标记可以读取只读副本的方法
+ * 等价于只读事务；开启读写分离时（datasource.routing.enabled=true），只读事务内的查询会路由到健康的副本，
+ * 其余查询（包括登录时的用户写入等需要读己之写的路径）始终使用主库。
+ * 只应用于能容忍秒级复制延迟的查询，如管理后台和历史记录
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReplicaRead {
+}
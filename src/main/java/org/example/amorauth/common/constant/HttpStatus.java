@@ -77,6 +77,11 @@ public interface HttpStatus {
      */
     int UNSUPPORTED_TYPE = 415;
 
+    /**
+     * 请求过于频繁
+     */
+    int TOO_MANY_REQUESTS = 429;
+
     /**
      * 系统内部错误
      */
@@ -0,0 +1,86 @@
+package org.example.amorauth.common.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Instructions 按日志分类采样和限流的TurboFilter
+ * 只作用于名称以 loggerPrefix 开头、级别不高于 INFO 的事件，WARN/ERROR 永远放行；
+ * 先按 sampleRate 采样，再限制每秒最多 maxPerSecond 条，被丢弃的数量在下一秒第一条日志出现时以WARN汇报一次。
+ * TurboFilter 在格式化消息之前执行，被丢弃的事件不会产生格式化和编码开销
+ */
+public class LogRateLimitFilter extends TurboFilter {
+
+    private String loggerPrefix = "";
+    private int maxPerSecond = Integer.MAX_VALUE;
+    private double sampleRate = 1.0;
+
+    /**
+     * 高32位为当前秒（取低32位），低32位为本秒已放行的数量
+     */
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format为null时是 isXxxEnabled() 级别检查，不计入配额
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        // 本来就会被级别过滤掉的事件不占配额
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            suppressed.incrementAndGet();
+            return FilterReply.DENY;
+        }
+        return acquire(logger) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean acquire(Logger logger) {
+        long second = System.currentTimeMillis() / 1000 & 0xFFFFFFFFL;
+        while (true) {
+            long current = window.get();
+            long currentSecond = current >>> 32;
+            long count = current & 0xFFFFFFFFL;
+            if (currentSecond != second) {
+                if (window.compareAndSet(current, second << 32 | 1)) {
+                    reportSuppressed(logger);
+                    return true;
+                }
+            } else if (count >= maxPerSecond) {
+                suppressed.incrementAndGet();
+                return false;
+            } else if (window.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void reportSuppressed(Logger logger) {
+        long dropped = suppressed.getAndSet(0);
+        if (dropped > 0) {
+            // WARN级别不经过本过滤器的限流
+            logger.warn("Suppressed {} log events from {} by sampling/rate limit", dropped, loggerPrefix);
+        }
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
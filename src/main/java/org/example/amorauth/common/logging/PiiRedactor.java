@@ -0,0 +1,64 @@
+package org.example.amorauth.common.logging;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @Instructions 日志脱敏
+ * 邮箱保留首字符和域名（j***@example.com），Bearer令牌、JWT、Google访问令牌以及
+ * access_token / refresh_token / id_token / client_secret / code 等参数值替换为 [REDACTED]；
+ * 先做廉价的字符检查，不含可疑内容的字符串不会进入正则匹配
+ */
+public final class PiiRedactor {
+
+    static final String REDACTED = "[REDACTED]";
+
+    private static final Pattern SENSITIVE = Pattern.compile(
+            "(?<email>[A-Za-z0-9._%+-]+@[A-Za-z0-9-]+(?:\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,})"
+                    + "|(?<bearer>(?i:bearer)\\s+)[A-Za-z0-9\\-._~+/]+=*"
+                    + "|(?<jwt>eyJ[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]*)"
+                    + "|(?<google>ya29\\.[A-Za-z0-9_\\-]+)"
+                    + "|(?<param>\\b(?i:access_token|refresh_token|id_token|client_secret|code)\\b[\"']?\\s*[:=]\\s*[\"']?)"
+                    + "[^\"'&\\s,}]+");
+
+    private PiiRedactor() {
+    }
+
+    public static String redact(String text) {
+        if (text == null || !mayContainSensitiveData(text)) {
+            return text;
+        }
+        Matcher matcher = SENSITIVE.matcher(text);
+        if (!matcher.find()) {
+            return text;
+        }
+        StringBuilder redacted = new StringBuilder(text.length());
+        do {
+            String replacement;
+            if (matcher.group("email") != null) {
+                String email = matcher.group("email");
+                replacement = email.charAt(0) + "***" + email.substring(email.indexOf('@'));
+            } else if (matcher.group("bearer") != null) {
+                replacement = matcher.group("bearer") + REDACTED;
+            } else if (matcher.group("param") != null) {
+                replacement = matcher.group("param") + REDACTED;
+            } else {
+                replacement = REDACTED;
+            }
+            matcher.appendReplacement(redacted, Matcher.quoteReplacement(replacement));
+        } while (matcher.find());
+        matcher.appendTail(redacted);
+        return redacted.toString();
+    }
+
+    private static boolean mayContainSensitiveData(String text) {
+        return text.indexOf('@') >= 0
+                || text.contains("earer")
+                || text.contains("EARER")
+                || text.contains("eyJ")
+                || text.contains("ya29.")
+                || text.contains("_token")
+                || text.contains("secret")
+                || text.contains("code");
+    }
+}
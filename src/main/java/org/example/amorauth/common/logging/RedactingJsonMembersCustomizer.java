@@ -0,0 +1,17 @@
+package org.example.amorauth.common.logging;
+
+import org.springframework.boot.json.JsonWriter;
+import org.springframework.boot.logging.structured.StructuredLoggingJsonMembersCustomizer;
+
+/**
+ * @Instructions 结构化日志（JSON）脱敏
+ * 通过 logging.structured.json.customizer 启用，对消息、MDC以及键值对中的所有字符串值做 PiiRedactor 脱敏，
+ * 框架和第三方库输出的日志同样生效
+ */
+public class RedactingJsonMembersCustomizer implements StructuredLoggingJsonMembersCustomizer<Object> {
+
+    @Override
+    public void customize(JsonWriter.Members<Object> members) {
+        members.applyingValueProcessor(JsonWriter.ValueProcessor.of(String.class, PiiRedactor::redact));
+    }
+}
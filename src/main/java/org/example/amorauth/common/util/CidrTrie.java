@@ -0,0 +1,88 @@
+package org.example.amorauth.common.util;
+
+/**
+ * @Instructions CIDR网段前缀树
+ * IPv4和IPv6各一棵按位的二叉前缀树，匹配时最多走32/128步，与网段数量无关
+ */
+public final class CidrTrie {
+
+    private final Node ipv4Root = new Node();
+    private final Node ipv6Root = new Node();
+
+    /**
+     * 添加网段，如 10.0.0.0/8、fd00::/8；不带前缀长度时视为单个地址
+     */
+    public void add(String cidr) {
+        int slash = cidr.indexOf('/');
+        byte[] address = IpAddresses.parse(cidr, 0, slash < 0 ? cidr.length() : slash);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+        }
+        int maxBits = address.length * 8;
+        int prefixLength = maxBits;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr, e);
+            }
+            if (prefixLength < 0 || prefixLength > maxBits) {
+                throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+            }
+        }
+
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (bit(address, bit) == 0) {
+                if (node.zero == null) {
+                    node.zero = new Node();
+                }
+                node = node.zero;
+            } else {
+                if (node.one == null) {
+                    node.one = new Node();
+                }
+                node = node.one;
+            }
+        }
+        node.terminal = true;
+    }
+
+    public boolean contains(byte[] address) {
+        if (address == null) {
+            return false;
+        }
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+        int maxBits = address.length * 8;
+        for (int bit = 0; ; bit++) {
+            if (node.terminal) {
+                return true;
+            }
+            if (bit == maxBits) {
+                return false;
+            }
+            node = bit(address, bit) == 0 ? node.zero : node.one;
+            if (node == null) {
+                return false;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return !ipv4Root.hasChildren() && !ipv6Root.hasChildren();
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static final class Node {
+        private Node zero;
+        private Node one;
+        private boolean terminal;
+
+        private boolean hasChildren() {
+            return terminal || zero != null || one != null;
+        }
+    }
+}
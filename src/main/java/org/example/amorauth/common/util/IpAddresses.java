@@ -0,0 +1,257 @@
+package org.example.amorauth.common.util;
+
+/**
+ * @Instructions IP地址文本与二进制形式互相转换
+ * 直接在原字符串的区间上解析，不做DNS查询，也不产生substring/split等中间对象；
+ * IPv4以4字节表示，IPv6以16字节表示，IPv4映射的IPv6地址(::ffff:a.b.c.d)统一归一化为4字节
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    public static byte[] parse(CharSequence text) {
+        return text == null ? null : parse(text, 0, text.length());
+    }
+
+    /**
+     * 解析 text[start, end) 区间内的IP地址，允许首尾空白、IPv6方括号和zone id
+     *
+     * @return 4或16字节的地址，无法解析时返回 null
+     */
+    public static byte[] parse(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start >= end) {
+            return null;
+        }
+
+        if (text.charAt(start) == '[') {
+            int close = indexOf(text, ']', start + 1, end);
+            if (close < 0) {
+                return null;
+            }
+            start++;
+            end = close;
+        }
+
+        boolean hasColon = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ':') {
+                hasColon = true;
+            } else if (c == '%') {
+                // 去掉IPv6的zone id
+                end = i;
+                break;
+            }
+        }
+
+        if (!hasColon) {
+            byte[] out = new byte[4];
+            return parseIpv4(text, start, end, out, 0) ? out : null;
+        }
+        return normalize(parseIpv6(text, start, end));
+    }
+
+    /**
+     * 按RFC 5952格式化地址：IPv4为点分十进制，IPv6为小写并压缩最长的连续零段
+     */
+    public static String format(byte[] address) {
+        if (address == null) {
+            return null;
+        }
+        if (address.length == 4) {
+            StringBuilder sb = new StringBuilder(15);
+            for (int i = 0; i < 4; i++) {
+                if (i > 0) {
+                    sb.append('.');
+                }
+                sb.append(address[i] & 0xff);
+            }
+            return sb.toString();
+        }
+        if (address.length != 16) {
+            throw new IllegalArgumentException("Invalid IP address length: " + address.length);
+        }
+
+        int bestStart = -1;
+        int bestLength = 0;
+        for (int i = 0; i < 8; ) {
+            if (group(address, i) != 0) {
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < 8 && group(address, i) == 0) {
+                i++;
+            }
+            if (i - runStart > bestLength) {
+                bestStart = runStart;
+                bestLength = i - runStart;
+            }
+        }
+        if (bestLength < 2) {
+            bestStart = -1;
+        }
+
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                sb.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ':') {
+                sb.append(':');
+            }
+            sb.append(Integer.toHexString(group(address, i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 将文本地址规范化（如压缩IPv6、去掉IPv4映射前缀），无法解析时返回 null
+     */
+    public static String normalize(String text) {
+        return format(parse(text));
+    }
+
+    private static int group(byte[] address, int index) {
+        return ((address[index * 2] & 0xff) << 8) | (address[index * 2 + 1] & 0xff);
+    }
+
+    private static boolean parseIpv4(CharSequence text, int start, int end, byte[] out, int offset) {
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            if (octets == 4) {
+                return false;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                value = value * 10 + (text.charAt(i) - '0');
+                digits++;
+                i++;
+                if (digits > 3) {
+                    return false;
+                }
+            }
+            if (digits == 0 || value > 255) {
+                return false;
+            }
+            out[offset + octets++] = (byte) value;
+            if (i < end) {
+                if (text.charAt(i) != '.' || i == end - 1) {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return octets == 4;
+    }
+
+    private static byte[] parseIpv6(CharSequence text, int start, int end) {
+        byte[] out = new byte[16];
+        int position = 0;
+        int compressAt = -1;
+        int i = start;
+
+        if (end - start >= 2 && text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return null;
+            }
+            compressAt = 0;
+            i += 2;
+        }
+
+        while (i < end) {
+            if (position == 16) {
+                return null;
+            }
+            int groupStart = i;
+            int value = 0;
+            int digits = 0;
+            while (i < end && Character.digit(text.charAt(i), 16) >= 0) {
+                value = (value << 4) | Character.digit(text.charAt(i), 16);
+                digits++;
+                i++;
+                if (digits > 4) {
+                    break;
+                }
+            }
+            if (i < end && text.charAt(i) == '.') {
+                // 末尾内嵌的IPv4地址
+                if (position > 12 || !parseIpv4(text, groupStart, end, out, position)) {
+                    return null;
+                }
+                position += 4;
+                break;
+            }
+            if (digits == 0 || digits > 4) {
+                return null;
+            }
+            out[position++] = (byte) (value >>> 8);
+            out[position++] = (byte) value;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':') {
+                return null;
+            }
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (compressAt >= 0) {
+                    return null;
+                }
+                compressAt = position;
+                i++;
+            } else if (i == end) {
+                return null;
+            }
+        }
+
+        if (compressAt >= 0) {
+            if (position == 16) {
+                return null;
+            }
+            int tail = position - compressAt;
+            System.arraycopy(out, compressAt, out, 16 - tail, tail);
+            for (int j = compressAt; j < 16 - tail; j++) {
+                out[j] = 0;
+            }
+        } else if (position != 16) {
+            return null;
+        }
+        return out;
+    }
+
+    private static byte[] normalize(byte[] address) {
+        if (address == null) {
+            return null;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) {
+                return address;
+            }
+        }
+        if ((address[10] & 0xff) != 0xff || (address[11] & 0xff) != 0xff) {
+            return address;
+        }
+        return new byte[]{address[12], address[13], address[14], address[15]};
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
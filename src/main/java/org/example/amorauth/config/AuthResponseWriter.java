@@ -0,0 +1,90 @@
+package org.example.amorauth.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.amorauth.common.constant.HttpStatus;
+import org.example.amorauth.common.domain.R;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 安全相关处理器的JSON响应
+ * 固定内容的响应在启动时用应用统一的ObjectMapper编码为字节数组，之后每次直接写出；
+ * 包含异常信息等动态内容的响应通过同一个ObjectMapper直接写入输出流，保证JSON转义正确
+ */
+@Component
+public class AuthResponseWriter {
+
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final ObjectWriter failureWriter;
+
+    private final byte[] loginSuccessBody;
+    private final byte[] logoutSuccessBody;
+    private final byte[] unauthorizedBody;
+    private final byte[] forbiddenBody;
+    private final byte[] tooManyRequestsBody;
+
+    public AuthResponseWriter(ObjectMapper objectMapper) throws JsonProcessingException {
+        this.failureWriter = objectMapper.writerFor(LoginFailureBody.class);
+
+        Map<String, Object> loginSuccess = new LinkedHashMap<>();
+        loginSuccess.put("success", true);
+        loginSuccess.put("message", "登录成功");
+        loginSuccess.put("redirectUrl", "/dashboard");
+        this.loginSuccessBody = objectMapper.writeValueAsBytes(loginSuccess);
+
+        Map<String, Object> logoutSuccess = new LinkedHashMap<>();
+        logoutSuccess.put("success", true);
+        logoutSuccess.put("message", "登出成功");
+        this.logoutSuccessBody = objectMapper.writeValueAsBytes(logoutSuccess);
+
+        this.unauthorizedBody = objectMapper.writeValueAsBytes(R.fail(HttpStatus.UNAUTHORIZED, "未授权访问"));
+        this.forbiddenBody = objectMapper.writeValueAsBytes(R.fail(HttpStatus.FORBIDDEN, "无权限访问"));
+        this.tooManyRequestsBody = objectMapper.writeValueAsBytes(
+                R.fail(HttpStatus.TOO_MANY_REQUESTS, "请求过于频繁，请稍后再试"));
+    }
+
+    public void writeLoginSuccess(HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.SUCCESS, loginSuccessBody);
+    }
+
+    public void writeLoginFailure(HttpServletResponse response, AuthenticationException exception) throws IOException {
+        response.setStatus(HttpStatus.UNAUTHORIZED);
+        response.setContentType(JSON_CONTENT_TYPE);
+        failureWriter.writeValue(response.getOutputStream(),
+                new LoginFailureBody(false, "登录失败", exception.getMessage()));
+    }
+
+    public void writeLogoutSuccess(HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.SUCCESS, logoutSuccessBody);
+    }
+
+    public void writeUnauthorized(HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.UNAUTHORIZED, unauthorizedBody);
+    }
+
+    public void writeForbidden(HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.FORBIDDEN, forbiddenBody);
+    }
+
+    public void writeTooManyRequests(HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.TOO_MANY_REQUESTS, tooManyRequestsBody);
+    }
+
+    private void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    public record LoginFailureBody(boolean success, String message, String error) {
+    }
+}
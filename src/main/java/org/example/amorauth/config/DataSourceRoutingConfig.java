@@ -0,0 +1,108 @@
+package org.example.amorauth.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读写分离配置
+ * datasource.routing.enabled=true 时生效：主库沿用 spring.datasource 配置，副本在 datasource.routing.replicas 中配置。
+ * 外层的 LazyConnectionDataSourceProxy 把真正获取连接推迟到第一条SQL执行时，
+ * 此时事务的只读标记已经设置好，路由才能生效。
+ * 副本健康检查在自己的线程上定期执行，副本连接超时设得很短，不可达的副本不会拖住共用的调度线程
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingConfig.RoutingProperties.class)
+@Slf4j
+public class DataSourceRoutingConfig {
+
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryProperties, RoutingProperties routingProperties) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routingProperties.getReplicas().size(); i++) {
+            Replica replica = routingProperties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : primaryProperties.getUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : primaryProperties.getPassword());
+            dataSource.setDriverClassName(primaryProperties.getDriverClassName());
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionTimeout(routingProperties.getConnectionTimeout());
+            dataSource.setValidationTimeout(Math.min(routingProperties.getConnectionTimeout() / 2, 1000));
+            replicas.add(dataSource);
+        }
+
+        ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primary, replicas, routingProperties.getMaxLagSeconds());
+        routingDataSource.afterPropertiesSet();
+        healthChecker.scheduleWithFixedDelay(() -> {
+            // 抛出的异常会终止周期任务，这里兜住
+            try {
+                routingDataSource.checkReplicas();
+            } catch (RuntimeException e) {
+                log.warn("Replica health check failed: {}", e.getMessage());
+            }
+        }, 0, routingProperties.getHealthCheckInterval(), TimeUnit.MILLISECONDS);
+        log.info("Read/write routing enabled with {} replicas, max lag {}s",
+                replicas.size(), routingProperties.getMaxLagSeconds());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        healthChecker.shutdownNow();
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "datasource.routing")
+    public static class RoutingProperties {
+        private boolean enabled;
+        /**
+         * 允许的最大复制延迟（秒），超过后该副本不再接收读请求
+         */
+        private long maxLagSeconds = 5;
+        private long healthCheckInterval = 5000;
+        /**
+         * 副本连接池获取连接的超时（毫秒），不可达的副本在该时间内被判定为不健康，读请求回退主库
+         */
+        private long connectionTimeout = 2000;
+        private List<Replica> replicas = new ArrayList<>();
+    }
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.amorauth.config;
+
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+
+/**
+ * MyBatis的Spring AOT支持
+ * 扫描生成的 MapperFactoryBean 定义只带有字符串形式的构造参数和未解析的泛型，
+ * AOT生成的Bean注册代码无法据此创建Mapper；这里在定义合并时补上 Class 类型的构造参数和目标类型。
+ * 普通（非AOT）模式下同样生效，且行为不变。
+ * Mapper扫描已在构建期完成，MapperScannerConfigurer 通过 META-INF/spring/aot.factories 排除，
+ * 避免运行时重复扫描与生成的Bean定义冲突
+ */
+@Configuration(proxyBeanMethods = false)
+public class MyBatisAotConfig {
+
+    @Bean
+    static MergedBeanDefinitionPostProcessor myBatisMapperFactoryBeanPostProcessor() {
+        return new MapperFactoryBeanPostProcessor();
+    }
+
+    static class MapperFactoryBeanPostProcessor implements MergedBeanDefinitionPostProcessor {
+
+        @Override
+        public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+            if (!beanDefinition.hasBeanClass()
+                    || !MapperFactoryBean.class.isAssignableFrom(beanDefinition.getBeanClass())
+                    || !beanDefinition.getResolvableType().hasUnresolvableGenerics()) {
+                return;
+            }
+            Object mapperInterface = beanDefinition.getPropertyValues().get("mapperInterface");
+            if (!(mapperInterface instanceof Class<?> mapperClass)) {
+                return;
+            }
+            ConstructorArgumentValues constructorArgumentValues = new ConstructorArgumentValues();
+            constructorArgumentValues.addGenericArgumentValue(mapperClass);
+            beanDefinition.setConstructorArgumentValues(constructorArgumentValues);
+            beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanDefinition.getBeanClass(), mapperClass));
+        }
+    }
+
+    public static class MapperScannerExcludeFilter implements BeanRegistrationExcludeFilter {
+
+        @Override
+        public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+            return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.amorauth.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.service.LoginMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +18,7 @@ import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorH
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
@@ -27,9 +30,12 @@ import java.util.Arrays;
 import java.util.List;
 
 @Configuration
+@RequiredArgsConstructor
 @Slf4j
 public class OAuth2HttpClientConfig {
 
+    private final LoginMetrics loginMetrics;
+
     @Value("${oauth2.proxy.enabled:false}")
     private boolean proxyEnabled;
 
@@ -52,7 +58,19 @@ public class OAuth2HttpClientConfig {
         } else {
             log.info("Custom OAuth2 token response client configured without proxy (production mode)");
         }
-        return tokenResponseClient;
+
+        // 记录令牌交换阶段的耗时
+        return request -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                OAuth2AccessTokenResponse response = tokenResponseClient.getTokenResponse(request);
+                success = true;
+                return response;
+            } finally {
+                loginMetrics.recordStage(LoginMetrics.STAGE_TOKEN, start, success);
+            }
+        };
     }
 
     @Bean
@@ -65,22 +83,21 @@ public class OAuth2HttpClientConfig {
 
         // 包装服务以添加自定义处理逻辑
         return request -> {
-            log.info("Processing OAuth2 user request for client: {} with proxy",
-                    request.getClientRegistration().getClientId());
-            log.info("UserInfo URI: {}", request.getClientRegistration().getProviderDetails().getUserInfoEndpoint().getUri());
-
+            long start = System.nanoTime();
             try {
                 OAuth2User oauth2User = userService.loadUser(request);
+                loginMetrics.recordStage(LoginMetrics.STAGE_USERINFO, start, true);
 
-                // 详细记录所有用户属性
-                log.info("OAuth2User attributes received:");
-                oauth2User.getAttributes().forEach((key, value) ->
-                    log.info("  {} = {}", key, value));
+                // 只记录属性数量，属性值（邮箱、姓名等）不写入日志
+                log.atDebug().setMessage("Loaded OAuth2 user")
+                        .addKeyValue("registrationId", request.getClientRegistration().getRegistrationId())
+                        .addKeyValue("attributeCount", oauth2User.getAttributes().size())
+                        .log();
 
                 return oauth2User;
             } catch (Exception e) {
-                log.error("Failed to load OAuth2 user with proxy: {}", e.getMessage());
-                log.error("Error details:", e);
+                loginMetrics.recordStage(LoginMetrics.STAGE_USERINFO, start, false);
+                log.error("Failed to load OAuth2 user: {}", e.getMessage(), e);
                 throw e;
             }
         };
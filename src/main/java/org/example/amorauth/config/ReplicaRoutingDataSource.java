@@ -0,0 +1,106 @@
+package org.example.amorauth.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离数据源
+ * 只读事务中的连接路由到健康的副本（轮询），其余一律使用主库；
+ * 副本健康状态由 {@link #checkReplicas()} 定期更新，复制延迟超过阈值、复制中断或无法连接的副本会被摘除，
+ * 没有健康副本时只读查询也回退到主库
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+    private final long maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile int[] healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagSeconds) {
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+        // 启动时还未做健康检查，先认为副本都不可用，避免读到延迟未知的数据
+        this.healthyReplicas = new int[0];
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(replicaKey(i), replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int[] healthy = healthyReplicas;
+        if (healthy.length == 0) {
+            return PRIMARY;
+        }
+        int index = healthy[Math.floorMod(nextReplica.getAndIncrement(), healthy.length)];
+        return replicaKey(index);
+    }
+
+    /**
+     * 检查所有副本的复制延迟并更新可用列表
+     */
+    public void checkReplicas() {
+        int[] healthy = new int[replicas.size()];
+        int count = 0;
+        for (int i = 0; i < replicas.size(); i++) {
+            Long lag = replicationLag(replicas.get(i));
+            if (lag != null && lag <= maxLagSeconds) {
+                healthy[count++] = i;
+            } else {
+                log.warn("Replica {} excluded from reads, replication lag: {}", i, lag);
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(healthy, 0, result, 0, count);
+        if (result.length != healthyReplicas.length) {
+            log.info("Healthy replicas changed: {} of {}", result.length, replicas.size());
+        }
+        healthyReplicas = result;
+    }
+
+    /**
+     * @return 复制延迟秒数，复制未运行或无法连接时返回 null
+     */
+    private Long replicationLag(DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(2);
+            try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long lag = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? null : lag;
+            }
+        } catch (Exception e) {
+            log.warn("Replica health check failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+}
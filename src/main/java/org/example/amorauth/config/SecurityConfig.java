@@ -1,26 +1,51 @@
 package org.example.amorauth.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.amorauth.common.constant.HttpStatus;
-import org.example.amorauth.common.domain.R;
 import org.example.amorauth.entity.User;
+import org.example.amorauth.filter.LoginRateLimitFilter;
+import org.example.amorauth.security.AuthenticatedUser;
+import org.example.amorauth.security.EncryptedCookieAuthorizationRequestRepository;
+import org.example.amorauth.service.ClientAddressResolver;
+import org.example.amorauth.service.FailedLoginRecorder;
+import org.example.amorauth.service.LoginCallbackGuard;
 import org.example.amorauth.service.LoginLogService;
+import org.example.amorauth.service.LoginMetrics;
+import org.example.amorauth.service.RateLimiter;
 import org.example.amorauth.service.UserService;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
 import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizationRequestRedirectFilter;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+
+import java.io.IOException;
 
 @Configuration
 @EnableWebSecurity
@@ -28,32 +53,69 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 @Slf4j
 public class SecurityConfig {
 
+    /**
+     * OAuth2LoginAuthenticationFilter 找不到对应授权请求时的错误码
+     */
+    private static final String AUTHORIZATION_REQUEST_NOT_FOUND = "authorization_request_not_found";
 
     private final UserService userService;
     private final LoginLogService loginLogService;
+    private final FailedLoginRecorder failedLoginRecorder;
     private final OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> authorizationCodeTokenResponseClient;
     private final OAuth2UserService<OAuth2UserRequest, OAuth2User> oauth2UserService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RateLimiter rateLimiter;
+    private final ClientAddressResolver clientAddressResolver;
+    private final AuthResponseWriter authResponseWriter;
+    private final LoginMetrics loginMetrics;
+    private final LoginCallbackGuard loginCallbackGuard;
+    private final EncryptedCookieAuthorizationRequestRepository authorizationRequestRepository;
+
+    /**
+     * 与OAuth2登录过滤器默认使用的仓库相同，成功回调中替换登录主体后用它重新保存安全上下文
+     */
+    private final SecurityContextRepository securityContextRepository = new DelegatingSecurityContextRepository(
+            new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository());
+
+    @Value("${rate-limit.login.ip.capacity:20}")
+    private int ipCapacity;
+
+    @Value("${rate-limit.login.ip.refill-per-second:0.5}")
+    private double ipRefillPerSecond;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
+                // 登录入口限流，放在OAuth2授权重定向和回调处理之前
+                .addFilterBefore(new LoginRateLimitFilter(rateLimiter, clientAddressResolver, authResponseWriter,
+                                loginMetrics, ipCapacity, ipRefillPerSecond),
+                        OAuth2AuthorizationRequestRedirectFilter.class)
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
                 .authorizeHttpRequests(authz -> authz
                         // 开放登录与回调等
                         .requestMatchers("/", "/api/auth/login", "/oauth2/**", "/login/oauth2/**",
                                 "/api/auth/google/callback", "/error").permitAll()
                         // 管理接口强制认证
                         .requestMatchers("/api/admin/**").authenticated()
+                        // 健康检查（含存活/就绪探针）开放，其余监控端点（metrics、prometheus）需要认证；
+                        // 如需免认证抓取指标，应通过 management.server.port 把监控端点放到只在内网开放的独立端口
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).authenticated()
                         // 其他接口按需放开或限制
                         .anyRequest().permitAll()
                 )
                 // API 统一返回 JSON，不做重定向
                 .exceptionHandling(ex -> ex
                         .defaultAuthenticationEntryPointFor(apiAuthenticationEntryPoint(),
-                                new AntPathRequestMatcher("/api/**"))
+                                PathPatternRequestMatcher.withDefaults().matcher("/api/**"))
+                        .defaultAuthenticationEntryPointFor(apiAuthenticationEntryPoint(),
+                                EndpointRequest.toAnyEndpoint())
                         .accessDeniedHandler(apiAccessDeniedHandler())
                 )
             .oauth2Login(oauth2 -> oauth2
+                // 授权请求保存在加密Cookie中，授权重定向不创建Session，回调可由任意节点处理
+                .authorizationEndpoint(authorization -> authorization
+                    .authorizationRequestRepository(authorizationRequestRepository)
+                )
                 .redirectionEndpoint(redirection -> redirection
                     .baseUri("/api/auth/google/callback")
                 )
@@ -64,59 +126,109 @@ public class SecurityConfig {
                     .userService(oauth2UserService)
                 )
                 .successHandler((request, response, authentication) -> {
-                    log.info("OAuth2 login success for user: {}", authentication.getName());
+                    log.atInfo().setMessage("OAuth2 login success").addKeyValue("subject", authentication.getName()).log();
 
-                    // OAuth2登录成功后的处理
+                    // OAuth2登录成功后的处理，同一次授权（state + code）只写一次用户、缓存和登录日志
                     OAuth2User oauth2User = (OAuth2User) authentication.getPrincipal();
-                    User user = userService.processOAuth2User(oauth2User);
+                    String state = request.getParameter(OAuth2ParameterNames.STATE);
+                    String code = request.getParameter(OAuth2ParameterNames.CODE);
+                    boolean firstCompletion = loginCallbackGuard.markCompleted(state, code);
+                    User user;
+                    if (firstCompletion) {
+                        try {
+                            user = userService.processOAuth2User(oauth2User);
+                        } catch (RuntimeException e) {
+                            // 用户写入失败（如数据库不可用）：撤销完成标记和已建立的登录状态，按登录失败处理
+                            loginCallbackGuard.release(state, code);
+                            SecurityContext emptyContext = SecurityContextHolder.createEmptyContext();
+                            SecurityContextHolder.setContext(emptyContext);
+                            securityContextRepository.saveContext(emptyContext, request, response);
+                            onLoginFailure(request, response,
+                                    new InternalAuthenticationServiceException("Failed to process OAuth2 user", e));
+                            return;
+                        }
+                    } else {
+                        // 重复的回调只读取用户
+                        log.atInfo().setMessage("Duplicate OAuth2 callback, skipping user upsert")
+                                .addKeyValue("subject", authentication.getName()).log();
+                        user = userService.findByGoogleId(oauth2User.getAttribute("sub"));
+                    }
 
-                    // 记录成功登录日志
-                    loginLogService.recordLogin(user, request, true, null);
+                    // 登录主体带上内部用户ID和资料版本号，之后的请求不必再按Google ID查找用户；
+                    // 重复回调时第一次处理尚未写入用户则保留原主体，由 CurrentUserArgumentResolver 按需补齐
+                    if (user != null) {
+                        OAuth2AuthenticationToken token = (OAuth2AuthenticationToken) authentication;
+                        OAuth2AuthenticationToken enriched = new OAuth2AuthenticationToken(
+                                AuthenticatedUser.of(oauth2User, user), token.getAuthorities(),
+                                token.getAuthorizedClientRegistrationId());
+                        enriched.setDetails(token.getDetails());
+                        SecurityContext context = SecurityContextHolder.createEmptyContext();
+                        context.setAuthentication(enriched);
+                        SecurityContextHolder.setContext(context);
+                        securityContextRepository.saveContext(context, request, response);
+                    }
+
+                    if (firstCompletion) {
+                        // 记录成功登录日志
+                        loginLogService.recordLogin(user, request, true, null);
+                        loginMetrics.loginSucceeded();
+                    }
 
                     // 返回JSON响应而不是重定向，避免循环
-                    response.setContentType("application/json");
-                    response.setCharacterEncoding("UTF-8");
-                    response.setStatus(200);
-                    response.getWriter().write("{\"success\":true,\"message\":\"登录成功\",\"redirectUrl\":\"/dashboard\"}");
+                    authResponseWriter.writeLoginSuccess(response);
                 })
                 .failureHandler((request, response, exception) -> {
-                    log.error("OAuth2 login failed", exception);
-
-                    // OAuth2登录失败后的处理
-                    response.setContentType("application/json");
-                    response.setCharacterEncoding("UTF-8");
-                    response.setStatus(401);
-                    response.getWriter().write("{\"success\":false,\"message\":\"登录失败\",\"error\":\"" + exception.getMessage() + "\"}");
+                    // 已成功处理过的授权被重试时授权请求已被取出而失败，不再记为一次登录失败；
+                    // 只有授权请求缺失的失败才可能是重试，其他失败不查询完成标记
+                    if (isAuthorizationRequestNotFound(exception)
+                            && loginCallbackGuard.isCompleted(request.getParameter(OAuth2ParameterNames.STATE),
+                            request.getParameter(OAuth2ParameterNames.CODE))) {
+                        log.atInfo().setMessage("Retried OAuth2 callback rejected").log();
+                        authResponseWriter.writeLoginFailure(response, exception);
+                        return;
+                    }
+                    onLoginFailure(request, response, exception);
                 })
             )
             .csrf(csrf -> csrf.disable())
             .logout(logout -> logout
-                .logoutSuccessHandler((request, response, authentication) -> {
-                    response.setContentType("application/json");
-                    response.setCharacterEncoding("UTF-8");
-                    response.getWriter().write("{\"success\":true,\"message\":\"登出成功\"}");
-                })
+                .logoutSuccessHandler((request, response, authentication) ->
+                        authResponseWriter.writeLogoutSuccess(response))
                 .permitAll()
             );
 
         return http.build();
     }
 
+    private void onLoginFailure(HttpServletRequest request, HttpServletResponse response,
+                                AuthenticationException exception) throws IOException {
+        // 登录失败会成批出现（IdP故障、撞库），明细由 FailedLoginRecorder 聚合和采样写库，这里不打印堆栈；
+        // 普通失败用INFO级别，受 LogRateLimitFilter 限流，只有服务端处理失败才用WARN
+        Throwable cause = exception.getCause();
+        log.atLevel(exception instanceof InternalAuthenticationServiceException ? Level.WARN : Level.INFO)
+                .setMessage("OAuth2 login failed")
+                .addKeyValue("error", exception.getMessage())
+                .addKeyValue("cause", cause != null ? cause.getClass().getSimpleName() + ": " + cause.getMessage() : null)
+                .log();
+
+        // 记录失败（内存聚合 + 采样写入完整日志）
+        failedLoginRecorder.record(request, exception);
+        loginMetrics.loginFailed();
+
+        // OAuth2登录失败后的处理
+        authResponseWriter.writeLoginFailure(response, exception);
+    }
+
+    private static boolean isAuthorizationRequestNotFound(AuthenticationException exception) {
+        return exception instanceof OAuth2AuthenticationException oauth2Exception
+                && AUTHORIZATION_REQUEST_NOT_FOUND.equals(oauth2Exception.getError().getErrorCode());
+    }
+
     private AuthenticationEntryPoint apiAuthenticationEntryPoint() {
-        return (request, response, authException) -> {
-            response.setStatus(401);
-            response.setContentType("application/json;charset=UTF-8");
-            var body = R.fail(HttpStatus.UNAUTHORIZED, "未授权访问");
-            objectMapper.writeValue(response.getWriter(), body);
-        };
+        return (request, response, authException) -> authResponseWriter.writeUnauthorized(response);
     }
 
     private AccessDeniedHandler apiAccessDeniedHandler() {
-        return (request, response, accessDeniedException) -> {
-            response.setStatus(403);
-            response.setContentType("application/json;charset=UTF-8");
-            var body = R.fail(HttpStatus.FORBIDDEN, "无权限访问");
-            objectMapper.writeValue(response.getWriter(), body);
-        };
+        return (request, response, accessDeniedException) -> authResponseWriter.writeForbidden(response);
     }
 }
@@ -1,14 +1,29 @@
 package org.example.amorauth.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.amorauth.common.annotation.CurrentUser;
 import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
+import org.example.amorauth.dto.UserChangeEvent;
+import org.example.amorauth.dto.UserBatchLookupRequest;
+import org.example.amorauth.dto.UserBatchLookupResult;
+import org.example.amorauth.security.AuthenticatedUser;
 import org.example.amorauth.service.LoginLogService;
+import org.example.amorauth.service.ReactiveUserReader;
+import org.example.amorauth.service.UserChangePublisher;
 import org.example.amorauth.service.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,28 +35,55 @@ public class AdminController {
 
     private final LoginLogService loginLogService;
     private final UserService userService;
+    private final ReactiveUserReader reactiveUserReader;
+    private final UserChangePublisher userChangePublisher;
 
+    /**
+     * 非阻塞实现：版本号和用户从Redis异步读取，登录次数统计在 boundedElastic 线程池中查库；
+     * 用户ID取自登录主体，读取版本号和统计登录次数同时进行。
+     * 登录次数会在资料版本号不变时变化（带用户ID的失败采样、冷归档），因此ETag同时包含版本号和登录次数，
+     * 304只省去读取用户和输出响应体
+     */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getSystemStats(@AuthenticationPrincipal OAuth2User oauth2User) {
-        String googleId = oauth2User.getAttribute("sub");
-        var user = userService.findByGoogleId(googleId);
+    public Mono<ResponseEntity<Map<String, Object>>> getSystemStats(@CurrentUser AuthenticatedUser currentUser,
+                                                                    WebRequest webRequest) {
+        if (currentUser == null) {
+            return Mono.just(ResponseEntity.status(401).build());
+        }
+        String googleId = currentUser.getGoogleId();
 
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalLogins", loginLogService.getUserLoginCount(user.getId()));
-        stats.put("userInfo", user);
+        return Mono.zip(reactiveUserReader.getProfileETag(googleId),
+                        reactiveUserReader.getUserLoginCount(currentUser.getUserId()))
+                .flatMap(tuple -> {
+                    long totalLogins = tuple.getT2();
+                    String eTag = statsETag(tuple.getT1(), totalLogins);
+                    if (webRequest.checkNotModified(eTag)) {
+                        return Mono.just(ResponseEntity.status(304).eTag(eTag).<Map<String, Object>>build());
+                    }
+                    return reactiveUserReader.findByGoogleId(googleId)
+                            .map(user -> {
+                                Map<String, Object> stats = new HashMap<>();
+                                stats.put("totalLogins", totalLogins);
+                                stats.put("userInfo", user);
 
-        return ResponseEntity.ok(stats);
+                                return ResponseEntity.ok()
+                                        .eTag(eTag)
+                                        .cacheControl(CacheControl.noCache().cachePrivate())
+                                        .body(stats);
+                            });
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/login-history")
     public ResponseEntity<List<LoginLogDto>> getLoginHistory(
-            @AuthenticationPrincipal OAuth2User oauth2User,
+            @CurrentUser AuthenticatedUser currentUser,
             @RequestParam(defaultValue = "10") Integer limit) {
 
-        String googleId = oauth2User.getAttribute("sub");
-        var user = userService.findByGoogleId(googleId);
-
-        List<LoginLogDto> loginHistory = loginLogService.getUserLoginHistory(user.getId(), limit);
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        List<LoginLogDto> loginHistory = loginLogService.getUserLoginHistory(currentUser.getUserId(), limit);
         return ResponseEntity.ok(loginHistory);
     }
 
@@ -52,4 +94,91 @@ public class AdminController {
         List<LoginLogDto> recentLogins = loginLogService.getRecentLoginLogs(limit);
         return ResponseEntity.ok(recentLogins);
     }
+
+    /**
+     * 批量查询用户，按ID、Google ID、邮箱任意组合，单次请求的标识总数受 user.batch-lookup.max-size 限制
+     */
+    @PostMapping("/users/batch")
+    public ResponseEntity<UserBatchLookupResult> batchLookupUsers(@RequestBody UserBatchLookupRequest request) {
+        try {
+            return ResponseEntity.ok(userService.batchLookup(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 回放用户变更事件：返回 after 之后的最多 count 条事件，以及下一次请求应使用的 offset
+     */
+    @GetMapping("/user-changes")
+    public ResponseEntity<Map<String, Object>> getUserChanges(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") Integer count) {
+
+        List<UserChangeEvent> events = userChangePublisher.readAfter(after, Math.min(Math.max(count, 1), 1000));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("events", events);
+        result.put("nextOffset", events.isEmpty() ? after : events.get(events.size() - 1).getOffset());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 按条件查询登录日志，按登录时间倒序；超出热表保留期的范围会合并冷归档中的数据
+     */
+    @GetMapping("/login-logs")
+    public ResponseEntity<List<LoginLogDto>> getLoginLogs(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) Boolean success,
+            @RequestParam(defaultValue = "100") Integer limit) {
+
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(userId);
+        query.setStartTime(startTime);
+        query.setEndTime(endTime);
+        query.setSuccess(success);
+
+        return ResponseEntity.ok(loginLogService.findLoginLogs(query, Math.min(Math.max(limit, 1), 1000)));
+    }
+
+    /**
+     * 流式导出登录日志（NDJSON或CSV），不受limit限制，内存占用恒定
+     */
+    @GetMapping("/login-logs/export")
+    public ResponseEntity<StreamingResponseBody> exportLoginLogs(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) Boolean success) {
+
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(userId);
+        query.setStartTime(startTime);
+        query.setEndTime(endTime);
+        query.setSuccess(success);
+
+        if ("csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"login-logs.csv\"")
+                    .body(out -> loginLogService.exportLoginLogsAsCsv(query, out));
+        }
+        if (!"ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"login-logs.ndjson\"")
+                .body(out -> loginLogService.exportLoginLogsAsNdjson(query, out));
+    }
+
+    /**
+     * 在资料ETag的引号内追加登录次数
+     */
+    private static String statsETag(String profileETag, long totalLogins) {
+        return profileETag.substring(0, profileETag.length() - 1) + "-" + totalLogins + "\"";
+    }
 }
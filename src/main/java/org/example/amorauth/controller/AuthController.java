@@ -5,8 +5,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.common.annotation.CurrentUser;
 import org.example.amorauth.entity.User;
-import org.example.amorauth.service.UserService;
+import org.example.amorauth.security.AuthenticatedUser;
+import org.example.amorauth.service.ReactiveUserReader;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -14,6 +17,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -25,7 +30,7 @@ import java.util.Map;
 @Slf4j
 public class AuthController {
 
-    private final UserService userService;
+    private final ReactiveUserReader reactiveUserReader;
 
     @GetMapping("/login")
     public void redirectToGoogleLogin(HttpServletResponse response) throws IOException {
@@ -34,14 +39,11 @@ public class AuthController {
     }
 
     @GetMapping("/success")
-    public ResponseEntity<Map<String, Object>> loginSuccess(@AuthenticationPrincipal OAuth2User oauth2User) {
-        if (oauth2User == null) {
+    public ResponseEntity<Map<String, Object>> loginSuccess(@CurrentUser User user) {
+        if (user == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        String googleId = oauth2User.getAttribute("sub");
-        User user = userService.findByGoogleId(googleId);
-
         Map<String, Object> response = new HashMap<>();
         response.put("message", "登录成功");
         response.put("user", user);
@@ -59,59 +61,35 @@ public class AuthController {
         return ResponseEntity.badRequest().body(response);
     }
 
-    @GetMapping("/google/callback")
-    public ResponseEntity<Map<String, Object>> googleCallback(@AuthenticationPrincipal OAuth2User oauth2User) {
-        log.info("Google callback endpoint accessed, OAuth2User present: {}", oauth2User != null);
-
-        if (oauth2User == null) {
-            log.warn("OAuth2User is null in callback");
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "OAuth2认证失败");
-            return ResponseEntity.badRequest().body(errorResponse);
+    /**
+     * 非阻塞实现：等待Redis期间不占用Servlet线程，缓存未命中时才在 boundedElastic 线程池中查库
+     */
+    @GetMapping("/user")
+    public Mono<ResponseEntity<Map<String, Object>>> getCurrentUser(@CurrentUser AuthenticatedUser currentUser,
+                                                                    WebRequest webRequest) {
+        if (currentUser == null) {
+            return Mono.just(ResponseEntity.status(401).build());
         }
 
-        try {
-            // 获取Google用户信息
-            String googleId = oauth2User.getAttribute("sub");
-            String email = oauth2User.getAttribute("email");
-            String name = oauth2User.getAttribute("name");
-            String picture = oauth2User.getAttribute("picture");
-            String locale = oauth2User.getAttribute("locale");
-
-            log.info("Google OAuth2 callback received for user: {}, googleId: {}", email, googleId);
-
-            // 创建或更新用户
-            User user = userService.createOrUpdateUser(googleId, email, name, picture, locale);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "登录成功");
-            response.put("user", user);
-            response.put("redirectUrl", "/dashboard");
+        String googleId = currentUser.getGoogleId();
 
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error processing Google callback", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "处理登录回调时发生错误: " + e.getMessage());
-            return ResponseEntity.status(500).body(errorResponse);
-        }
+        // 资料未变化时只做版本号比对，直接返回304，不加载和序列化用户
+        return reactiveUserReader.getProfileETag(googleId)
+                .flatMap(eTag -> webRequest.checkNotModified(eTag)
+                        ? Mono.just(ResponseEntity.status(304).eTag(eTag).<Map<String, Object>>build())
+                        : reactiveUserReader.findByGoogleId(googleId).map(user -> currentUser(user, eTag)))
+                .switchIfEmpty(Mono.fromSupplier(() -> currentUser(null, null)));
     }
 
-    @GetMapping("/user")
-    public ResponseEntity<Map<String, Object>> getCurrentUser(@AuthenticationPrincipal OAuth2User oauth2User) {
-        if (oauth2User == null) {
-            return ResponseEntity.status(401).build();
-        }
-
-        String googleId = oauth2User.getAttribute("sub");
-        User user = userService.findByGoogleId(googleId);
-
+    private ResponseEntity<Map<String, Object>> currentUser(User user, String eTag) {
         Map<String, Object> response = new HashMap<>();
         response.put("user", user);
         response.put("authenticated", true);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response);
     }
 
     @PostMapping("/logout")
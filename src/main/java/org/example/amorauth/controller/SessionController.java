@@ -3,13 +3,15 @@ package org.example.amorauth.controller;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.example.amorauth.service.RedisCircuitBreaker;
+import org.example.amorauth.service.RedisKeyScanner;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Session管理控制器
@@ -21,7 +23,8 @@ import java.util.Set;
 @Slf4j
 public class SessionController {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisKeyScanner redisKeyScanner;
+    private final RedisCircuitBreaker redisCircuitBreaker;
 
     /**
      * 清空当前用户Session
@@ -57,12 +60,15 @@ public class SessionController {
      */
     @PostMapping("/redis/clear/sessions")
     public ResponseEntity<Map<String, Object>> clearRedisSessions() {
+        if (!redisCircuitBreaker.isAvailable()) {
+            return redisUnavailable();
+        }
         Map<String, Object> result = new HashMap<>();
 
         try {
             log.info("开始清理Redis中的所有Session数据");
 
-            int totalCleared = 0;
+            long totalCleared = 0;
 
             // 清理Spring Session相关的key
             String[] sessionPatterns = {
@@ -72,11 +78,10 @@ public class SessionController {
             };
 
             for (String pattern : sessionPatterns) {
-                Set<String> keys = redisTemplate.keys(pattern);
-                if (keys != null && !keys.isEmpty()) {
-                    redisTemplate.delete(keys);
-                    totalCleared += keys.size();
-                    log.info("清理Redis key模式 {}: {} 个key", pattern, keys.size());
+                long cleared = redisKeyScanner.delete(pattern);
+                if (cleared > 0) {
+                    totalCleared += cleared;
+                    log.info("清理Redis key模式 {}: {} 个key", pattern, cleared);
                 }
             }
 
@@ -88,6 +93,8 @@ public class SessionController {
             log.info("Redis Session数据清理完成，共清理 {} 个key", totalCleared);
             return ResponseEntity.ok(result);
 
+        } catch (RedisKeyScanner.ScanInProgressException e) {
+            return scanInProgress();
         } catch (Exception e) {
             log.error("清理Redis Session数据失败", e);
             result.put("success", false);
@@ -101,12 +108,15 @@ public class SessionController {
      */
     @PostMapping("/redis/clear/oauth2")
     public ResponseEntity<Map<String, Object>> clearOAuth2Cache() {
+        if (!redisCircuitBreaker.isAvailable()) {
+            return redisUnavailable();
+        }
         Map<String, Object> result = new HashMap<>();
 
         try {
             log.info("开始清理OAuth2相关缓存");
 
-            int totalCleared = 0;
+            long totalCleared = 0;
 
             // OAuth2相关的缓存模式
             String[] oauth2Patterns = {
@@ -118,11 +128,10 @@ public class SessionController {
             };
 
             for (String pattern : oauth2Patterns) {
-                Set<String> keys = redisTemplate.keys(pattern);
-                if (keys != null && !keys.isEmpty()) {
-                    redisTemplate.delete(keys);
-                    totalCleared += keys.size();
-                    log.info("清理OAuth2缓存模式 {}: {} 个key", pattern, keys.size());
+                long cleared = redisKeyScanner.delete(pattern);
+                if (cleared > 0) {
+                    totalCleared += cleared;
+                    log.info("清理OAuth2缓存模式 {}: {} 个key", pattern, cleared);
                 }
             }
 
@@ -134,6 +143,8 @@ public class SessionController {
             log.info("OAuth2缓存清理完成，共清理 {} 个key", totalCleared);
             return ResponseEntity.ok(result);
 
+        } catch (RedisKeyScanner.ScanInProgressException e) {
+            return scanInProgress();
         } catch (Exception e) {
             log.error("清理OAuth2缓存失败", e);
             result.put("success", false);
@@ -147,16 +158,16 @@ public class SessionController {
      */
     @PostMapping("/redis/clear/all")
     public ResponseEntity<Map<String, Object>> clearAllRedisCache() {
+        if (!redisCircuitBreaker.isAvailable()) {
+            return redisUnavailable();
+        }
         Map<String, Object> result = new HashMap<>();
 
         try {
             log.warn("执行全量Redis缓存清理");
 
-            Set<String> allKeys = redisTemplate.keys("*");
-            int totalCount = allKeys != null ? allKeys.size() : 0;
-
-            if (allKeys != null && !allKeys.isEmpty()) {
-                redisTemplate.delete(allKeys);
+            long totalCount = redisKeyScanner.delete("*");
+            if (totalCount > 0) {
                 log.warn("已清理所有Redis数据，共 {} 个key", totalCount);
             }
 
@@ -167,6 +178,8 @@ public class SessionController {
 
             return ResponseEntity.ok(result);
 
+        } catch (RedisKeyScanner.ScanInProgressException e) {
+            return scanInProgress();
         } catch (Exception e) {
             log.error("清理所有Redis缓存失败", e);
             result.put("success", false);
@@ -177,49 +190,69 @@ public class SessionController {
 
     /**
      * 获取Redis缓存统计信息
+     * 各模式用SCAN游标计数（不再用会阻塞Redis的KEYS，集群模式下各master节点并行扫描），总数用DBSIZE；
+     * 扫描在 boundedElastic 线程池执行，等待期间不占用Servlet线程
      */
     @GetMapping("/redis/stats")
-    public ResponseEntity<Map<String, Object>> getRedisStats() {
-        Map<String, Object> result = new HashMap<>();
-
-        try {
-            // 统计不同类型的key数量
-            Map<String, Integer> stats = new HashMap<>();
-
-            String[] patterns = {
-                "spring:session:*",
-                "oauth2:*",
-                "auth:*",
-                "user:*",
-                "google:*"
-            };
-
-            int totalKeys = 0;
-            for (String pattern : patterns) {
-                Set<String> keys = redisTemplate.keys(pattern);
-                int count = keys != null ? keys.size() : 0;
-                stats.put(pattern, count);
-                totalKeys += count;
-            }
-
-            // 获取所有key的总数
-            Set<String> allKeys = redisTemplate.keys("*");
-            int allKeysCount = allKeys != null ? allKeys.size() : 0;
-
-            result.put("success", true);
-            result.put("patternStats", stats);
-            result.put("totalKeys", allKeysCount);
-            result.put("categorizedKeys", totalKeys);
-            result.put("otherKeys", allKeysCount - totalKeys);
-            result.put("timestamp", System.currentTimeMillis());
+    public Mono<ResponseEntity<Map<String, Object>>> getRedisStats() {
+        if (!redisCircuitBreaker.isAvailable()) {
+            return Mono.just(redisUnavailable());
+        }
+        // 统计不同类型的key数量
+        String[] patterns = {
+            "spring:session:*",
+            "oauth2:*",
+            "auth:*",
+            "user:*",
+            "google:*"
+        };
+
+        return Mono.fromCallable(() -> {
+                    Map<String, Long> stats = new HashMap<>();
+                    for (String pattern : patterns) {
+                        stats.put(pattern, redisKeyScanner.count(pattern));
+                    }
+                    long totalKeys = stats.values().stream().mapToLong(Long::longValue).sum();
+                    // 获取所有key的总数
+                    long allKeysCount = redisKeyScanner.dbSize();
+
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", true);
+                    result.put("patternStats", stats);
+                    result.put("totalKeys", allKeysCount);
+                    result.put("categorizedKeys", totalKeys);
+                    result.put("otherKeys", allKeysCount - totalKeys);
+                    result.put("timestamp", System.currentTimeMillis());
+                    return ResponseEntity.ok(result);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(RedisKeyScanner.ScanInProgressException.class, e -> Mono.just(scanInProgress()))
+                .onErrorResume(e -> {
+                    log.error("获取Redis统计信息失败", e);
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("success", false);
+                    result.put("error", e.getMessage());
+                    return Mono.just(ResponseEntity.status(500).body(result));
+                });
+    }
 
-            return ResponseEntity.ok(result);
+    /**
+     * Redis熔断期间管理操作直接返回503，不等待超时
+     */
+    private ResponseEntity<Map<String, Object>> redisUnavailable() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "Redis暂不可用，请稍后重试");
+        return ResponseEntity.status(503).body(result);
+    }
 
-        } catch (Exception e) {
-            log.error("获取Redis统计信息失败", e);
-            result.put("success", false);
-            result.put("error", e.getMessage());
-            return ResponseEntity.status(500).body(result);
-        }
+    /**
+     * 同一时间只允许一个key扫描，并发的清理或统计请求直接返回409
+     */
+    private ResponseEntity<Map<String, Object>> scanInProgress() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("error", "已有Redis key扫描在进行中，请稍后重试");
+        return ResponseEntity.status(409).body(result);
     }
 }
@@ -1,5 +1,6 @@
 package org.example.amorauth.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.time.LocalDateTime;
 
@@ -9,6 +10,8 @@ public class LoginLogDto {
     private Long userId;
     private LocalDateTime loginTime;
     private String ipAddress;
+    @JsonIgnore
+    private Integer userAgentId;
     private String userAgent;
     private String loginType;
     private Boolean success;
@@ -0,0 +1,16 @@
+package org.example.amorauth.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 登录日志查询条件
+ * 所有字段均为可选，为空时不参与过滤
+ */
+@Data
+public class LoginLogQuery {
+    private Long userId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Boolean success;
+}
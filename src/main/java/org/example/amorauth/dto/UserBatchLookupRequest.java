@@ -0,0 +1,14 @@
+package org.example.amorauth.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * 批量查询用户请求，三种标识可以任意组合
+ */
+@Data
+public class UserBatchLookupRequest {
+    private List<Long> ids;
+    private List<String> googleIds;
+    private List<String> emails;
+}
@@ -0,0 +1,17 @@
+package org.example.amorauth.dto;
+
+import lombok.Data;
+import org.example.amorauth.entity.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量查询用户结果，按请求中的标识分别索引，未找到的标识不出现在结果中
+ */
+@Data
+public class UserBatchLookupResult {
+    private Map<Long, User> byId = new LinkedHashMap<>();
+    private Map<String, User> byGoogleId = new LinkedHashMap<>();
+    private Map<String, User> byEmail = new LinkedHashMap<>();
+}
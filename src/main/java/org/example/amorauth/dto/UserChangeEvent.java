@@ -0,0 +1,21 @@
+package org.example.amorauth.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * 用户变更事件
+ * offset 为事件在Redis Stream中的ID，消费者可据此继续读取或回放
+ */
+@Data
+public class UserChangeEvent {
+    private String offset;
+    private Long userId;
+    private Long version;
+    /**
+     * CREATED 或 UPDATED
+     */
+    private String type;
+    private List<String> changedFields;
+    private Long timestamp;
+}
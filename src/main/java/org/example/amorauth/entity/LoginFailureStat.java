@@ -0,0 +1,15 @@
+package org.example.amorauth.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class LoginFailureStat {
+    private Long id;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private String ipAddress;
+    private String errorType;
+    private Long failureCount;
+    private Long sampledCount;
+}
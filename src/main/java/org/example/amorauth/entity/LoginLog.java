@@ -9,6 +9,10 @@ public class LoginLog {
     private Long userId;
     private LocalDateTime loginTime;
     private String ipAddress;
+    private Integer userAgentId;
+    /**
+     * 原始User-Agent，不直接入库，由 user_agent_id 字典编码还原
+     */
     private String userAgent;
     private String loginType;
     private Boolean success;
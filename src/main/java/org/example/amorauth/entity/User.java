@@ -14,4 +14,8 @@ public class User {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime lastLoginAt;
+    /**
+     * 资料版本号，每次更新加1，用于生成ETag
+     */
+    private Long version;
 }
@@ -0,0 +1,10 @@
+package org.example.amorauth.entity;
+
+import lombok.Data;
+
+@Data
+public class UserAgent {
+    private Integer id;
+    private byte[] uaHash;
+    private String userAgent;
+}
@@ -0,0 +1,82 @@
+package org.example.amorauth.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.config.AuthResponseWriter;
+import org.example.amorauth.service.ClientAddressResolver;
+import org.example.amorauth.service.LoginMetrics;
+import org.example.amorauth.service.RateLimiter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 登录入口限流过滤器
+ * 作用于发起授权的 /oauth2/authorization/** 和登录回调，按客户端IP限流；
+ * 放在OAuth2相关过滤器之前，被拒绝的请求直接返回429，不会触发对IdP、MySQL的任何调用。
+ * /api/auth/login 只是重定向到授权入口，不计数；授权入口和回调使用各自的IP桶，
+ * 一次完整的登录在每个桶中只消耗一个令牌，rate-limit.login.ip 的容量和补充速率即为每个IP的登录次数。
+ * 不按账号限流：请求中的 login_hint 由客户端任意填写且不转发给Google，并不决定最终登录的账号。
+ * 拒绝次数计入 auth.login.rate_limited 指标，日志只在DEBUG级别输出（受日志限流采样），攻击流量不会变成日志洪水
+ */
+@Slf4j
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher AUTHORIZATION_REQUEST =
+            PathPatternRequestMatcher.withDefaults().matcher("/oauth2/authorization/**");
+
+    private static final RequestMatcher LOGIN_CALLBACK =
+            PathPatternRequestMatcher.withDefaults().matcher("/api/auth/google/callback");
+
+    private final RateLimiter rateLimiter;
+    private final ClientAddressResolver clientAddressResolver;
+    private final int ipCapacity;
+    private final double ipRefillPerSecond;
+    private final AuthResponseWriter authResponseWriter;
+    private final LoginMetrics loginMetrics;
+
+    public LoginRateLimitFilter(RateLimiter rateLimiter,
+                                ClientAddressResolver clientAddressResolver,
+                                AuthResponseWriter authResponseWriter,
+                                LoginMetrics loginMetrics,
+                                int ipCapacity, double ipRefillPerSecond) {
+        this.rateLimiter = rateLimiter;
+        this.clientAddressResolver = clientAddressResolver;
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerSecond = ipRefillPerSecond;
+        this.authResponseWriter = authResponseWriter;
+        this.loginMetrics = loginMetrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !AUTHORIZATION_REQUEST.matches(request) && !LOGIN_CALLBACK.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientIp = clientAddressResolver.resolve(request);
+        boolean authorization = AUTHORIZATION_REQUEST.matches(request);
+        String ipKey = (authorization ? "rate:login:ip:" : "rate:login:callback:ip:") + clientIp;
+        if (!rateLimiter.tryAcquire(ipKey, ipCapacity, ipRefillPerSecond)) {
+            loginMetrics.rateLimited(authorization ? LoginMetrics.ENDPOINT_AUTHORIZATION : LoginMetrics.ENDPOINT_CALLBACK);
+            log.debug("Login rate limit exceeded for ip {}", clientIp);
+            reject(response, ipRefillPerSecond);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, double refillPerSecond) throws IOException {
+        response.setHeader("Retry-After", Long.toString((long) Math.ceil(1 / refillPerSecond)));
+        // 拒绝响应是启动时预编码的固定内容
+        authResponseWriter.writeTooManyRequests(response);
+    }
+}
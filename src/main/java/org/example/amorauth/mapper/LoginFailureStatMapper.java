@@ -0,0 +1,13 @@
+package org.example.amorauth.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.amorauth.entity.LoginFailureStat;
+
+import java.util.List;
+
+@Mapper
+public interface LoginFailureStatMapper {
+
+    int insertBatch(@Param("stats") List<LoginFailureStat> stats);
+}
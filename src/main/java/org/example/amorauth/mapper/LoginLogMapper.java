@@ -2,9 +2,12 @@ package org.example.amorauth.mapper;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import org.example.amorauth.entity.LoginLog;
 import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -12,11 +15,33 @@ public interface LoginLogMapper {
 
     int insertLoginLog(LoginLog loginLog);
 
-    List<LoginLogDto> findByUserId(@Param("userId") Long userId, @Param("limit") Integer limit);
+    /**
+     * 按条件查询，按登录时间倒序取前 limit 条
+     */
+    List<LoginLogDto> findByQuery(@Param("query") LoginLogQuery query, @Param("limit") int limit);
 
+    /**
+     * 最近的成功登录，与最近登录缓冲的内容一致
+     */
     List<LoginLogDto> findRecentLogs(@Param("limit") Integer limit);
 
+    /**
+     * 按条件流式读取登录日志，必须在事务（同一SqlSession）内消费
+     */
+    Cursor<LoginLogDto> streamLogs(@Param("query") LoginLogQuery query);
+
+    List<Long> findActiveUserIdsSince(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
     long countByUserId(@Param("userId") Long userId);
 
     LoginLog findLatestByUserId(@Param("userId") Long userId);
+
+    /**
+     * 按id顺序读取 afterId 之后的日志，供冷归档使用
+     */
+    List<LoginLogDto> findArchivable(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    Long findMinId();
+
+    int deleteByIds(@Param("ids") List<Long> ids);
 }
@@ -0,0 +1,21 @@
+package org.example.amorauth.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.example.amorauth.entity.UserAgent;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface UserAgentMapper {
+
+    Integer findIdByHash(@Param("uaHash") byte[] uaHash);
+
+    /**
+     * 插入User-Agent，已存在时不重复插入，两种情况下都会回填id
+     */
+    int insertUserAgent(UserAgent userAgent);
+
+    List<UserAgent> findByIds(@Param("ids") Collection<Integer> ids);
+}
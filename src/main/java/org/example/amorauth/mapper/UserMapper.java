@@ -4,6 +4,9 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.example.amorauth.entity.User;
 
+import java.util.Collection;
+import java.util.List;
+
 @Mapper
 public interface UserMapper {
 
@@ -13,7 +16,17 @@ public interface UserMapper {
 
     int insertUser(User user);
 
+    /**
+     * 按 user.version 条件更新，版本号已变化时返回0
+     */
     int updateUser(User user);
 
     User findById(@Param("id") Long id);
+
+    /**
+     * 按ID、Google ID、邮箱批量查询，满足任一条件即返回；调用方需保证至少一个集合非空
+     */
+    List<User> findByKeys(@Param("ids") Collection<Long> ids,
+                          @Param("googleIds") Collection<String> googleIds,
+                          @Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,52 @@
+package org.example.amorauth.mapper.handler;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.example.amorauth.common.util.IpAddresses;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * IP地址类型处理器
+ * Java侧使用规范化的文本地址，数据库中以 VARBINARY(16) 存储4字节(IPv4)或16字节(IPv6)的二进制形式
+ */
+@MappedJdbcTypes(JdbcType.VARBINARY)
+public class IpAddressTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        byte[] address = IpAddresses.parse(parameter);
+        if (address == null) {
+            ps.setNull(i, Types.VARBINARY);
+        } else {
+            ps.setBytes(i, address);
+        }
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toText(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toText(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toText(cs.getBytes(columnIndex));
+    }
+
+    private String toText(byte[] address) {
+        if (address == null || (address.length != 4 && address.length != 16)) {
+            return null;
+        }
+        return IpAddresses.format(address);
+    }
+}
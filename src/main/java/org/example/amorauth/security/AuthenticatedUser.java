@@ -0,0 +1,53 @@
+package org.example.amorauth.security;
+
+import lombok.Getter;
+import org.example.amorauth.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 登录主体
+ * 在登录成功时由IdP返回的 OAuth2User 加上内部用户ID和登录时的资料版本号构成，随Session保存；
+ * 之后的请求直接从主体中取用户ID，不必每次按Google ID查找用户
+ */
+@Getter
+public class AuthenticatedUser implements OAuth2User, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Object> attributes;
+    private final Collection<? extends GrantedAuthority> authorities;
+    private final String name;
+
+    /**
+     * 内部用户ID
+     */
+    private final Long userId;
+
+    private final String googleId;
+
+    /**
+     * 登录时的资料版本号，此后其他设备登录或资料更新会使其落后于缓存中的版本号
+     */
+    private final long profileVersion;
+
+    private AuthenticatedUser(OAuth2User oauth2User, User user) {
+        this.attributes = oauth2User.getAttributes();
+        this.authorities = List.copyOf(oauth2User.getAuthorities());
+        this.name = oauth2User.getName();
+        this.userId = user.getId();
+        this.googleId = user.getGoogleId();
+        this.profileVersion = user.getVersion() != null ? user.getVersion() : 0L;
+    }
+
+    public static AuthenticatedUser of(OAuth2User oauth2User, User user) {
+        return new AuthenticatedUser(oauth2User, user);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.amorauth.security;
+
+import lombok.RequiredArgsConstructor;
+import org.example.amorauth.common.annotation.CurrentUser;
+import org.example.amorauth.entity.User;
+import org.example.amorauth.service.UserService;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * 解析 @CurrentUser 参数
+ * AuthenticatedUser 直接取自登录主体；User 才按Google ID读取（缓存优先）。
+ * 升级前建立的Session中主体仍是普通的 OAuth2User，此时按 sub 查找一次用户补齐内部用户ID
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final UserService userService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        Class<?> type = parameter.getParameterType();
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && (type == AuthenticatedUser.class || type == User.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof OAuth2User oauth2User)) {
+            return null;
+        }
+
+        if (oauth2User instanceof AuthenticatedUser authenticatedUser) {
+            if (parameter.getParameterType() == AuthenticatedUser.class) {
+                return authenticatedUser;
+            }
+            return userService.findByGoogleId(authenticatedUser.getGoogleId());
+        }
+
+        String googleId = oauth2User.getAttribute("sub");
+        User user = googleId != null ? userService.findByGoogleId(googleId) : null;
+        if (user == null || parameter.getParameterType() == User.class) {
+            return user;
+        }
+        return AuthenticatedUser.of(oauth2User, user);
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.amorauth.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把OAuth2授权请求（state、nonce、PKCE verifier等）保存在加密Cookie中，代替默认的 HttpSession 存储
+ * 授权重定向不再为匿名用户创建Session，回调可以落在任意节点上。
+ * Cookie内容用AES-GCM加密并认证，密钥为 oauth2.authorization-request-cookie.secret（Base64编码、至少256位的随机密钥），
+ * 所有节点必须配置相同的值；未配置时启动失败，只有显式设置 allow-ephemeral-key 的单节点部署才使用进程内随机密钥。
+ * 过期时间写在密文内，不依赖浏览器遵守Max-Age。回调时只接受 state 与请求参数一致的授权请求，取出后立即清除Cookie
+ */
+@Component
+@Slf4j
+public class EncryptedCookieAuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+    private static final String COOKIE_NAME = "OAUTH2_AUTH_REQUEST";
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KEY_BYTES = 32;
+    private static final byte[] AAD = COOKIE_NAME.getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+
+    public EncryptedCookieAuthorizationRequestRepository(
+            @Value("${oauth2.authorization-request-cookie.secret:}") String secret,
+            @Value("${oauth2.authorization-request-cookie.allow-ephemeral-key:false}") boolean allowEphemeralKey,
+            @Value("${oauth2.authorization-request-cookie.max-age:180s}") Duration maxAge) {
+        this.key = new SecretKeySpec(resolveKey(secret, allowEphemeralKey), "AES");
+        this.maxAge = maxAge;
+    }
+
+    private byte[] resolveKey(String secret, boolean allowEphemeralKey) {
+        if (secret == null || secret.isBlank()) {
+            if (!allowEphemeralKey) {
+                throw new IllegalStateException("oauth2.authorization-request-cookie.secret must be set to a base64 encoded "
+                        + "key of at least 256 bits (e.g. openssl rand -base64 32); set "
+                        + "oauth2.authorization-request-cookie.allow-ephemeral-key=true only for single-node deployments");
+            }
+            // 进程内随机密钥只适用于单节点，重启后进行中的登录需要重新发起
+            log.warn("oauth2.authorization-request-cookie.secret is not set, using a random per-process key");
+            byte[] keyBytes = new byte[KEY_BYTES];
+            secureRandom.nextBytes(keyBytes);
+            return keyBytes;
+        }
+        byte[] keyBytes;
+        try {
+            keyBytes = Base64.getDecoder().decode(secret.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("oauth2.authorization-request-cookie.secret is not valid base64", e);
+        }
+        if (keyBytes.length < KEY_BYTES) {
+            throw new IllegalStateException("oauth2.authorization-request-cookie.secret must decode to at least "
+                    + KEY_BYTES + " bytes, got " + keyBytes.length);
+        }
+        // 更长的密钥材料压缩为AES-256密钥
+        return keyBytes.length == KEY_BYTES ? keyBytes : sha256(keyBytes);
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        String state = request.getParameter(OAuth2ParameterNames.STATE);
+        if (state == null) {
+            return null;
+        }
+        OAuth2AuthorizationRequest authorizationRequest = readCookie(request);
+        return authorizationRequest != null && state.equals(authorizationRequest.getState()) ? authorizationRequest : null;
+    }
+
+    @Override
+    public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest, HttpServletRequest request,
+                                         HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            writeCookie(request, response, "", Duration.ZERO);
+            return;
+        }
+        writeCookie(request, response, encrypt(serialize(authorizationRequest)), maxAge);
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+        OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+        if (authorizationRequest != null) {
+            writeCookie(request, response, "", Duration.ZERO);
+        }
+        return authorizationRequest;
+    }
+
+    private OAuth2AuthorizationRequest readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                try {
+                    return deserialize(decrypt(cookie.getValue()));
+                } catch (GeneralSecurityException | IllegalArgumentException | IOException e) {
+                    // 被篡改、密钥不一致或格式错误的Cookie都按不存在处理
+                    log.debug("Rejected OAuth2 authorization request cookie: {}", e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, Duration cookieMaxAge) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+                .path(request.getContextPath().isEmpty() ? "/" : request.getContextPath())
+                .httpOnly(true)
+                .secure(request.isSecure())
+                // IdP重定向回来是顶级导航的GET请求，Lax即可携带
+                .sameSite("Lax")
+                .maxAge(cookieMaxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private byte[] serialize(OAuth2AuthorizationRequest authorizationRequest) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("expiresAt", System.currentTimeMillis() + maxAge.toMillis());
+        payload.put("authorizationUri", authorizationRequest.getAuthorizationUri());
+        payload.put("clientId", authorizationRequest.getClientId());
+        payload.put("redirectUri", authorizationRequest.getRedirectUri());
+        payload.put("scopes", List.copyOf(authorizationRequest.getScopes()));
+        payload.put("state", authorizationRequest.getState());
+        payload.put("additionalParameters", authorizationRequest.getAdditionalParameters());
+        payload.put("attributes", authorizationRequest.getAttributes());
+        payload.put("authorizationRequestUri", authorizationRequest.getAuthorizationRequestUri());
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize OAuth2 authorization request", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private OAuth2AuthorizationRequest deserialize(byte[] json) throws IOException {
+        Map<String, Object> payload = objectMapper.readValue(json, new TypeReference<>() {
+        });
+        if (((Number) payload.get("expiresAt")).longValue() < System.currentTimeMillis()) {
+            log.debug("Rejected expired OAuth2 authorization request cookie");
+            return null;
+        }
+        return OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri((String) payload.get("authorizationUri"))
+                .clientId((String) payload.get("clientId"))
+                .redirectUri((String) payload.get("redirectUri"))
+                .scopes(new LinkedHashSet<>((List<String>) payload.get("scopes")))
+                .state((String) payload.get("state"))
+                .additionalParameters((Map<String, Object>) payload.get("additionalParameters"))
+                .attributes((Map<String, Object>) payload.get("attributes"))
+                .authorizationRequestUri((String) payload.get("authorizationRequestUri"))
+                .build();
+    }
+
+    private String encrypt(byte[] plaintext) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(AAD);
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt OAuth2 authorization request", e);
+        }
+    }
+
+    private byte[] decrypt(String value) throws GeneralSecurityException {
+        byte[] data = Base64.getUrlDecoder().decode(value);
+        if (data.length <= IV_LENGTH) {
+            throw new IllegalArgumentException("Cookie value too short");
+        }
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+        cipher.updateAAD(AAD);
+        return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
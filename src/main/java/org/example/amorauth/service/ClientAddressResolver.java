@@ -0,0 +1,128 @@
+package org.example.amorauth.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.common.util.CidrTrie;
+import org.example.amorauth.common.util.IpAddresses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * 客户端IP解析
+ * 只有当直连地址属于受信任代理时才读取转发头；X-Forwarded-For 从右向左解析，
+ * 跳过受信任代理的跳数，第一个不受信任的地址即为客户端地址，客户端无法通过伪造该头冒用IP。
+ * 解析结果缓存在请求属性中，限流、审计日志等同一请求内的多次调用只解析一次
+ */
+@Component
+@Slf4j
+public class ClientAddressResolver {
+
+    public static final String CLIENT_ADDRESS_ATTRIBUTE = ClientAddressResolver.class.getName() + ".CLIENT_ADDRESS";
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    private final CidrTrie trustedProxies = new CidrTrie();
+
+    public ClientAddressResolver(@Value("${client-address.trusted-proxies:127.0.0.0/8,::1/128}") List<String> trustedProxies) {
+        for (String cidr : trustedProxies) {
+            if (!cidr.isBlank()) {
+                this.trustedProxies.add(cidr.trim());
+            }
+        }
+        log.info("Client address resolver configured with trusted proxies: {}", trustedProxies);
+    }
+
+    /**
+     * 获取规范化后的客户端IP文本
+     */
+    public String resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(CLIENT_ADDRESS_ATTRIBUTE);
+        if (cached instanceof String address) {
+            return address;
+        }
+        String address = doResolve(request);
+        request.setAttribute(CLIENT_ADDRESS_ATTRIBUTE, address);
+        return address;
+    }
+
+    private String doResolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        byte[] remote = IpAddresses.parse(remoteAddr);
+        if (remote == null) {
+            return remoteAddr;
+        }
+        if (!trustedProxies.contains(remote)) {
+            return IpAddresses.format(remote);
+        }
+
+        byte[] forwarded = fromForwardedFor(request);
+        if (forwarded != null) {
+            return IpAddresses.format(forwarded);
+        }
+
+        byte[] realIp = IpAddresses.parse(request.getHeader("X-Real-IP"));
+        if (realIp != null) {
+            return IpAddresses.format(realIp);
+        }
+
+        byte[] cloudflareIp = IpAddresses.parse(request.getHeader("CF-Connecting-IP"));
+        if (cloudflareIp != null) {
+            return IpAddresses.format(cloudflareIp);
+        }
+
+        return IpAddresses.format(remote);
+    }
+
+    /**
+     * 从右向左遍历 X-Forwarded-For 中的地址，返回第一个不受信任的跳；
+     * 全部受信任时返回最左侧的地址，遇到无法解析的值（如 unknown）时返回最近一个受信任的跳
+     */
+    private byte[] fromForwardedFor(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(X_FORWARDED_FOR);
+        if (headers == null || !headers.hasMoreElements()) {
+            return null;
+        }
+        String value = headers.nextElement();
+        if (headers.hasMoreElements()) {
+            // 多个同名头等价于按出现顺序用逗号拼接
+            StringBuilder joined = new StringBuilder(value);
+            while (headers.hasMoreElements()) {
+                joined.append(',').append(headers.nextElement());
+            }
+            value = joined.toString();
+        }
+
+        byte[] lastTrusted = null;
+        int end = value.length();
+        while (end > 0) {
+            int comma = end - 1;
+            while (comma >= 0 && value.charAt(comma) != ',') {
+                comma--;
+            }
+            if (!isBlank(value, comma + 1, end)) {
+                byte[] hop = IpAddresses.parse(value, comma + 1, end);
+                if (hop == null) {
+                    return lastTrusted;
+                }
+                if (!trustedProxies.contains(hop)) {
+                    return hop;
+                }
+                lastTrusted = hop;
+            }
+            end = comma;
+        }
+        return lastTrusted;
+    }
+
+    private static boolean isBlank(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
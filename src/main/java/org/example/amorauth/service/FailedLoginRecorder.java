@@ -0,0 +1,183 @@
+package org.example.amorauth.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.entity.LoginFailureStat;
+import org.example.amorauth.mapper.LoginFailureStatMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录失败记录
+ * 失败事件先按 (IP, 错误类型) 在内存中聚合计数，定期批量写入 login_failure_stats；
+ * 每个周期内只有前 sample-budget 条失败会写入完整的 login_logs 记录，
+ * 撞库等攻击产生的大量失败不会逐条写库。
+ * 计数器常驻在同一个map中，写库时逐个取出并清零，写库失败的计数合并回下一个周期
+ */
+@Service
+@Slf4j
+public class FailedLoginRecorder {
+
+    /**
+     * 聚合key数量超过上限后，新IP统一计入该占位地址，保证内存有界
+     */
+    private static final String OVERFLOW_ADDRESS = "0.0.0.0";
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 500;
+
+    private final LoginLogService loginLogService;
+    private final LoginFailureStatMapper loginFailureStatMapper;
+    private final ClientAddressResolver clientAddressResolver;
+    private final int sampleBudget;
+    private final int maxAggregateKeys;
+
+    private final Map<FailureKey, FailureCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger sampledInWindow = new AtomicInteger();
+    private volatile LocalDateTime windowStart = LocalDateTime.now();
+
+    public FailedLoginRecorder(LoginLogService loginLogService,
+                               LoginFailureStatMapper loginFailureStatMapper,
+                               ClientAddressResolver clientAddressResolver,
+                               @Value("${login-log.failure.sample-budget:100}") int sampleBudget,
+                               @Value("${login-log.failure.max-aggregate-keys:10000}") int maxAggregateKeys) {
+        this.loginLogService = loginLogService;
+        this.loginFailureStatMapper = loginFailureStatMapper;
+        this.clientAddressResolver = clientAddressResolver;
+        this.sampleBudget = sampleBudget;
+        this.maxAggregateKeys = maxAggregateKeys;
+    }
+
+    /**
+     * 记录一次登录失败，只做内存计数，采样额度内再写一条完整日志
+     */
+    public void record(HttpServletRequest request, AuthenticationException exception) {
+        String ipAddress = clientAddressResolver.resolve(request);
+        String errorType = errorType(exception);
+
+        FailureKey key = new FailureKey(ipAddress, errorType);
+        if (!counters.containsKey(key) && counters.size() >= maxAggregateKeys) {
+            key = new FailureKey(OVERFLOW_ADDRESS, errorType);
+        }
+        boolean sampled = sampledInWindow.incrementAndGet() <= sampleBudget;
+        add(key, 1, sampled ? 1 : 0);
+
+        if (sampled) {
+            loginLogService.recordLoginAttempt(null, request, false, truncate(exception.getMessage()));
+        }
+    }
+
+    private void add(FailureKey key, long failures, long sampled) {
+        FailureCounter counter = counters.computeIfAbsent(key, k -> new FailureCounter());
+        counter.failures.add(failures);
+        counter.sampled.add(sampled);
+        if (counters.get(key) != counter) {
+            // 累加期间计数器被 flush 当作空闲计数器移除
+            transferRemoved(key, counter);
+        }
+    }
+
+    /**
+     * 把已移除计数器上残留的计数转移到map中当前的计数器；
+     * add 和 flush 都可能调用，sumThenReset 保证同一份计数只转移一次
+     */
+    private void transferRemoved(FailureKey key, FailureCounter removed) {
+        long failures = removed.failures.sumThenReset();
+        long sampled = removed.sampled.sumThenReset();
+        if (failures == 0 && sampled == 0) {
+            return;
+        }
+        FailureCounter replacement = counters.computeIfAbsent(key, k -> new FailureCounter());
+        replacement.failures.add(failures);
+        replacement.sampled.add(sampled);
+    }
+
+    /**
+     * 定期将聚合计数写入数据库并开始新的统计周期
+     */
+    @Scheduled(fixedDelayString = "${login-log.failure.flush-interval:10000}")
+    public void flush() {
+        LocalDateTime start = windowStart;
+        LocalDateTime end = LocalDateTime.now();
+        windowStart = end;
+        sampledInWindow.set(0);
+
+        List<LoginFailureStat> stats = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<FailureKey, FailureCounter> entry : counters.entrySet()) {
+            long failures = entry.getValue().failures.sumThenReset();
+            long sampled = entry.getValue().sampled.sumThenReset();
+            if (failures == 0) {
+                // 整个周期没有失败的key移除，清零到移除之间并发累加的计数转移回map
+                if (counters.remove(entry.getKey(), entry.getValue())) {
+                    transferRemoved(entry.getKey(), entry.getValue());
+                }
+                continue;
+            }
+            LoginFailureStat stat = new LoginFailureStat();
+            stat.setWindowStart(start);
+            stat.setWindowEnd(end);
+            stat.setIpAddress(entry.getKey().ipAddress());
+            stat.setErrorType(entry.getKey().errorType());
+            stat.setFailureCount(failures);
+            stat.setSampledCount(sampled);
+            stats.add(stat);
+            total += failures;
+        }
+
+        if (stats.isEmpty()) {
+            return;
+        }
+
+        try {
+            loginFailureStatMapper.insertBatch(stats);
+            log.info("Flushed {} login failures in {} aggregates", total, stats.size());
+        } catch (Exception e) {
+            // 计数合并回当前周期，下次写库时一并写入，周期起点沿用本次的起点
+            for (LoginFailureStat stat : stats) {
+                add(new FailureKey(stat.getIpAddress(), stat.getErrorType()),
+                        stat.getFailureCount(), stat.getSampledCount());
+            }
+            windowStart = start;
+            log.error("Failed to flush {} login failure aggregates, will retry with the next window", stats.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static String errorType(AuthenticationException exception) {
+        if (exception instanceof OAuth2AuthenticationException oauth2Exception
+                && oauth2Exception.getError() != null) {
+            return oauth2Exception.getError().getErrorCode();
+        }
+        return exception.getClass().getSimpleName();
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_MESSAGE_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_MESSAGE_LENGTH);
+    }
+
+    private record FailureKey(String ipAddress, String errorType) {
+    }
+
+    private static final class FailureCounter {
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder sampled = new LongAdder();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.amorauth.service;
+
+import org.example.amorauth.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Redis不可用时使用的进程内用户缓存
+ * 按ID、Google ID、邮箱分别索引同一个条目，每次写Redis缓存时同步写入；
+ * 只在Redis读取被熔断或失败时读取，条目存活时间较短以限制多节点间的不一致；
+ * 按访问顺序淘汰，key数量达到上限后每次写入淘汰最久未访问的key，写入和读取都是O(1)
+ */
+@Component
+public class LocalUserCache {
+
+    private final long ttlMillis;
+
+    /**
+     * 访问顺序的LinkedHashMap，读取也会调整顺序，所有访问都在该对象上同步
+     */
+    private final Map<String, Entry> entries;
+
+    public LocalUserCache(@Value("${user.local-cache.max-entries:30000}") int maxEntries,
+                          @Value("${user.local-cache.ttl:60s}") Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public User getById(Long id) {
+        return get("id:" + id);
+    }
+
+    public User getByGoogleId(String googleId) {
+        return get("google:" + googleId);
+    }
+
+    public User getByEmail(String email) {
+        return get("email:" + UserCacheKeys.normalizeEmail(email));
+    }
+
+    private User get(String cacheKey) {
+        synchronized (entries) {
+            Entry entry = entries.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(cacheKey);
+                return null;
+            }
+            return entry.user();
+        }
+    }
+
+    public void put(User user) {
+        Entry entry = new Entry(user, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put("id:" + user.getId(), entry);
+            entries.put("google:" + user.getGoogleId(), entry);
+            entries.put("email:" + UserCacheKeys.normalizeEmail(user.getEmail()), entry);
+        }
+    }
+
+    public void evict(User user) {
+        synchronized (entries) {
+            entries.remove("id:" + user.getId());
+            entries.remove("google:" + user.getGoogleId());
+            entries.remove("email:" + UserCacheKeys.normalizeEmail(user.getEmail()));
+        }
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 登录回调去重
+ * 以授权回调的 state 和 code 为键，保证同一次授权只执行一次用户写入、缓存回填和登录日志写入；
+ * 回调重试或并发重复提交时不再重复处理。
+ * 本节点内用本地表判定，多节点之间用Redis的 SET NX EX 判定；Redis熔断时只按本地表判定
+ */
+@Component
+@Slf4j
+public class LoginCallbackGuard {
+
+    private static final String KEY_PREFIX = "login:callback:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final Duration ttl;
+
+    /**
+     * 本节点已完成的授权，值为过期时间
+     */
+    private final Map<String, Long> localCompletions = new ConcurrentHashMap<>();
+
+    public LoginCallbackGuard(StringRedisTemplate stringRedisTemplate,
+                              RedisCircuitBreaker redisCircuitBreaker,
+                              @Value("${login.callback-dedup.ttl:10m}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 标记一次授权的登录处理已完成
+     *
+     * @return 该授权第一次完成时为 true，重复的回调为 false
+     */
+    public boolean markCompleted(String state, String code) {
+        String key = key(state, code);
+        long now = System.currentTimeMillis();
+        Long previous = localCompletions.putIfAbsent(key, now + ttl.toMillis());
+        if (previous != null) {
+            if (previous >= now || !localCompletions.replace(key, previous, now + ttl.toMillis())) {
+                return false;
+            }
+        }
+        Boolean acquired = redisCircuitBreaker.call(
+                () -> stringRedisTemplate.opsForValue().setIfAbsent(key, "1", ttl), () -> true);
+        return !Boolean.FALSE.equals(acquired);
+    }
+
+    /**
+     * 撤销完成标记，用于标记后登录处理失败的情况，之后同一授权的回调不再被当作重复
+     */
+    public void release(String state, String code) {
+        String key = key(state, code);
+        localCompletions.remove(key);
+        redisCircuitBreaker.run(() -> stringRedisTemplate.delete(key), () -> {
+        });
+    }
+
+    /**
+     * 授权是否已经完成过登录处理，不做标记
+     */
+    public boolean isCompleted(String state, String code) {
+        String key = key(state, code);
+        Long expiresAt = localCompletions.get(key);
+        if (expiresAt != null && expiresAt >= System.currentTimeMillis()) {
+            return true;
+        }
+        Boolean exists = redisCircuitBreaker.call(() -> stringRedisTemplate.hasKey(key), () -> false);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    @Scheduled(fixedDelayString = "${login.callback-dedup.purge-interval:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        localCompletions.values().removeIf(expiresAt -> expiresAt < now);
+    }
+
+    /**
+     * state和code都是一次性的凭据，只保存摘要
+     */
+    private static String key(String state, String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(state).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(String.valueOf(code).getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
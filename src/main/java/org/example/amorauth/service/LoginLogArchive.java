@@ -0,0 +1,236 @@
+package org.example.amorauth.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 登录日志冷归档
+ * 管理归档目录下的段文件（打开后内存映射），为 LoginLogService 提供按条件扫描冷数据的能力；段按id区间从新到旧排列。
+ * 归档任务只在一个节点上运行，归档目录必须是所有节点共享的卷：每次查询前列一次目录，
+ * 打开其他节点新写入的段、丢弃已被删除的段，归档后从 login_logs 删除的行在所有节点上立即可查
+ */
+@Component
+@Slf4j
+public class LoginLogArchive {
+
+    private static final Comparator<LoginLogDto> NEWEST_FIRST = Comparator
+            .comparing(LoginLogDto::getLoginTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(LoginLogDto::getId, Comparator.reverseOrder());
+
+    private final Path directory;
+
+    /**
+     * 按 maxId 从大到小排列，写时复制
+     */
+    private volatile List<LoginLogSegment> segments = List.of();
+
+    /**
+     * 打开失败的段文件，不再重复尝试和告警
+     */
+    private final Set<Path> unreadable = ConcurrentHashMap.newKeySet();
+
+    public LoginLogArchive(@Value("${login-log.archive.dir:./data/login-log-archive}") Path directory) {
+        this.directory = directory;
+    }
+
+    @PostConstruct
+    void loadSegments() {
+        List<LoginLogSegment> loaded = refresh();
+        log.info("Loaded {} login log segments from {}", loaded.size(), directory);
+    }
+
+    /**
+     * 写入一个新段并加入查询范围
+     */
+    public synchronized LoginLogSegment append(List<LoginLogDto> rows) throws IOException {
+        LoginLogSegment segment = LoginLogSegment.write(directory, rows);
+        List<LoginLogSegment> updated = new ArrayList<>(segments.size() + 1);
+        for (LoginLogSegment existing : segments) {
+            // 并发的查询可能已经通过目录列表打开了新段
+            if (existing.getPath().equals(segment.getPath())) {
+                return existing;
+            }
+            updated.add(existing);
+        }
+        updated.add(segment);
+        publish(updated);
+        return segment;
+    }
+
+    public List<LoginLogSegment> getSegments() {
+        return refresh();
+    }
+
+    public boolean isEmpty() {
+        return refresh().isEmpty();
+    }
+
+    /**
+     * 列出归档目录，与已打开的段对比：段文件集合没有变化时直接返回当前列表，否则打开新增的段、去掉已删除的段。
+     * 段文件由临时文件原子重命名而来，目录中出现的段总是完整的
+     */
+    private List<LoginLogSegment> refresh() {
+        List<Path> files = listSegmentFiles();
+        List<LoginLogSegment> current = segments;
+        if (matches(current, files)) {
+            return current;
+        }
+        synchronized (this) {
+            current = segments;
+            if (matches(current, files)) {
+                return current;
+            }
+            Map<Path, LoginLogSegment> opened = new HashMap<>();
+            for (LoginLogSegment segment : current) {
+                opened.put(segment.getPath(), segment);
+            }
+            List<LoginLogSegment> updated = new ArrayList<>(files.size());
+            for (Path file : files) {
+                LoginLogSegment segment = opened.get(file);
+                if (segment == null) {
+                    try {
+                        segment = LoginLogSegment.open(file);
+                        log.info("Opened login log segment {}", file);
+                    } catch (IOException | RuntimeException e) {
+                        unreadable.add(file);
+                        log.warn("Skipping unreadable login log segment {}: {}", file, e.getMessage());
+                        continue;
+                    }
+                }
+                updated.add(segment);
+            }
+            return publish(updated);
+        }
+    }
+
+    private List<Path> listSegmentFiles() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + LoginLogSegment.FILE_SUFFIX)) {
+            for (Path file : stream) {
+                if (!unreadable.contains(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            // 列目录失败时继续使用已打开的段
+            log.warn("Failed to list login log archive {}: {}", directory, e.getMessage());
+            return segments.stream().map(LoginLogSegment::getPath).toList();
+        }
+        return files;
+    }
+
+    private static boolean matches(List<LoginLogSegment> segments, List<Path> files) {
+        if (segments.size() != files.size()) {
+            return false;
+        }
+        for (LoginLogSegment segment : segments) {
+            if (!files.contains(segment.getPath())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<LoginLogSegment> publish(List<LoginLogSegment> updated) {
+        updated.sort(Comparator.comparingLong(LoginLogSegment::getMaxId).reversed());
+        segments = List.copyOf(updated);
+        return segments;
+    }
+
+    /**
+     * 已归档数据中最新的登录时间，没有归档时为 null
+     */
+    public LocalDateTime getMaxArchivedTime() {
+        LocalDateTime max = null;
+        for (LoginLogSegment segment : refresh()) {
+            LocalDateTime segmentMax = segment.getMaxTime();
+            if (segmentMax != null && (max == null || segmentMax.isAfter(max))) {
+                max = segmentMax;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 按登录时间倒序返回最多 limit 条匹配的归档日志
+     */
+    public List<LoginLogDto> find(LoginLogQuery query, int limit) {
+        PriorityQueue<LoginLogDto> newest = new PriorityQueue<>(NEWEST_FIRST.reversed());
+        for (LoginLogSegment segment : refresh()) {
+            segment.scan(query, row -> {
+                newest.add(row);
+                if (newest.size() > limit) {
+                    newest.poll();
+                }
+            });
+        }
+        List<LoginLogDto> result = new ArrayList<>(newest);
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * 统计匹配的归档日志
+     *
+     * @param hotMinId 热表中的最小id，归档中id不小于它的行尚未从热表删除，不计入；热表为空时传 null
+     */
+    public long count(LoginLogQuery query, Long hotMinId) {
+        AtomicLong count = new AtomicLong();
+        for (LoginLogSegment segment : refresh()) {
+            if (hotMinId != null && segment.getMinId() >= hotMinId) {
+                continue;
+            }
+            segment.scan(query, row -> {
+                if (hotMinId == null || row.getId() < hotMinId) {
+                    count.incrementAndGet();
+                }
+            });
+        }
+        return count.get();
+    }
+
+    /**
+     * 按段从新到旧、段内按登录时间倒序回调所有匹配的归档日志，用于导出；
+     * 每次只在内存中保留一个段的匹配行
+     *
+     * @param hotMinId 同 {@link #count(LoginLogQuery, Long)}，跳过仍在热表中的行
+     */
+    public void forEach(LoginLogQuery query, Long hotMinId, Consumer<LoginLogDto> consumer) {
+        for (LoginLogSegment segment : refresh()) {
+            if (hotMinId != null && segment.getMinId() >= hotMinId) {
+                continue;
+            }
+            List<LoginLogDto> rows = new ArrayList<>();
+            segment.scan(query, row -> {
+                if (hotMinId == null || row.getId() < hotMinId) {
+                    rows.add(row);
+                }
+            });
+            rows.sort(NEWEST_FIRST);
+            rows.forEach(consumer);
+        }
+    }
+}
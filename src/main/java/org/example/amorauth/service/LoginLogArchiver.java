@@ -0,0 +1,155 @@
+package org.example.amorauth.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.mapper.LoginLogMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 登录日志冷归档任务
+ * 定期把早于热数据保留期的登录日志按id顺序写入段文件，段文件落盘并加入查询范围后再从 login_logs 删除。
+ * 只归档id连续的前缀，遇到第一条未过保留期的行即停止，因此归档中的id总是小于热表中剩余行的id，
+ * 查询端据此跳过归档中id不小于热表最小id、即尚未删除的行。
+ * 先写后删：删除前崩溃时，下次运行会先补删已归档段中仍留在热表里的行
+ * 多节点部署时归档目录必须放在所有节点共享的卷上（各节点查询前会重新列目录），且只在一个节点上启用本任务。
+ * 一次归档可能持续数分钟，在自己的单线程执行器上运行，不占用熔断探测、失败计数写库等共用的调度线程；
+ * 上一次归档尚未结束时跳过本次触发
+ */
+@Component
+@ConditionalOnProperty(name = "login-log.archive.enabled", havingValue = "true")
+@Slf4j
+public class LoginLogArchiver {
+
+    /**
+     * 每条DELETE语句包含的id数量
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final LoginLogMapper loginLogMapper;
+    private final LoginLogArchive loginLogArchive;
+    private final Duration hotRetention;
+    private final int segmentRows;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "login-log-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LoginLogArchiver(LoginLogMapper loginLogMapper,
+                            LoginLogArchive loginLogArchive,
+                            @Value("${login-log.archive.hot-retention:180d}") Duration hotRetention,
+                            @Value("${login-log.archive.segment-rows:50000}") int segmentRows) {
+        this.loginLogMapper = loginLogMapper;
+        this.loginLogArchive = loginLogArchive;
+        this.hotRetention = hotRetention;
+        this.segmentRows = segmentRows;
+    }
+
+    @Scheduled(cron = "${login-log.archive.cron:0 30 3 * * *}")
+    public void scheduleArchive() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Previous login log archive still running, skipping this run");
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                archive();
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * 归档中途停止是安全的：下次运行会补删已写入段文件但仍留在热表中的行
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void archive() {
+        try {
+            finishInterruptedDeletes();
+            LocalDateTime before = LocalDateTime.now().minus(hotRetention);
+            long archived = 0;
+            long afterId = 0;
+            while (true) {
+                List<LoginLogDto> page = loginLogMapper.findArchivable(afterId, segmentRows);
+                List<LoginLogDto> batch = expiredPrefix(page, before);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                LoginLogSegment segment = loginLogArchive.append(batch);
+                deleteArchived(segment.ids());
+                archived += batch.size();
+                log.info("Archived {} login logs (id {} - {}) into {}",
+                        segment.getRowCount(), segment.getMinId(), segment.getMaxId(), segment.getPath());
+                if (batch.size() < segmentRows) {
+                    break;
+                }
+                afterId = segment.getMaxId();
+            }
+            if (archived > 0) {
+                log.info("Login log archive finished: {} rows older than {} archived, {} segments in total",
+                        archived, before, loginLogArchive.getSegments().size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Login log archive failed", e);
+        }
+    }
+
+    /**
+     * 上次运行在写完段文件、删完热表之前中断时，补删仍在热表中的已归档行
+     */
+    private void finishInterruptedDeletes() {
+        Long minHotId = loginLogMapper.findMinId();
+        if (minHotId == null) {
+            return;
+        }
+        for (LoginLogSegment segment : loginLogArchive.getSegments()) {
+            if (segment.getMaxId() < minHotId) {
+                // 段按 maxId 从大到小排列，后面的段都已删除完毕
+                break;
+            }
+            int deleted = deleteArchived(segment.ids());
+            if (deleted > 0) {
+                log.info("Deleted {} already archived login logs left over from {}", deleted, segment.getPath());
+            }
+        }
+    }
+
+    /**
+     * 截取登录时间早于 before 的最长前缀
+     */
+    private static List<LoginLogDto> expiredPrefix(List<LoginLogDto> page, LocalDateTime before) {
+        int end = 0;
+        while (end < page.size() && page.get(end).getLoginTime() != null
+                && page.get(end).getLoginTime().isBefore(before)) {
+            end++;
+        }
+        return page.subList(0, end);
+    }
+
+    private int deleteArchived(List<Long> ids) {
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            deleted += loginLogMapper.deleteByIds(ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size())));
+        }
+        return deleted;
+    }
+}
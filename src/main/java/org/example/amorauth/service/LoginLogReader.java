@@ -0,0 +1,26 @@
+package org.example.amorauth.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.amorauth.common.annotation.ReplicaRead;
+import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.mapper.LoginLogMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 最近登录列表的数据库回退查询
+ * 单独成为一个bean，使只读事务（及副本路由）只包住回退查询本身：
+ * 缓冲命中的轮询不获取连接、不开启事务，补齐用户信息也在事务之外走主库与缓存
+ */
+@Service
+@RequiredArgsConstructor
+public class LoginLogReader {
+
+    private final LoginLogMapper loginLogMapper;
+
+    @ReplicaRead
+    public List<LoginLogDto> findRecentLogs(int limit) {
+        return loginLogMapper.findRecentLogs(limit);
+    }
+}
@@ -0,0 +1,425 @@
+package org.example.amorauth.service;
+
+import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 登录日志归档段文件，写入后不再修改
+ * 行按 (user_id, login_time, id) 排序，每 BLOCK_ROWS 行编码为一个Deflate压缩块；
+ * 文件末尾是稀疏索引（每块一条：首末行的 (user_id, login_time)、块内时间范围、偏移和长度）和定长尾部。
+ * 读取时整个文件以只读方式内存映射，索引常驻堆内，查询只解压与 user_id / 时间范围相交的块
+ *
+ * <pre>
+ * header: magic(int) version(int)
+ * block*: deflate(row*)
+ * index:  [firstUserId firstTime lastUserId lastTime minTime maxTime offset(long) compressedLength rawLength rows(int)]*
+ * footer: indexOffset(long) blockCount(int) rowCount minId maxId minTime maxTime(long) magic(int)
+ * </pre>
+ */
+public final class LoginLogSegment {
+
+    static final String FILE_SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x4C4C5347;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final int FOOTER_LENGTH = 8 + 4 + 8 * 5 + 4;
+    private static final int BLOCK_ROWS = 1024;
+
+    /**
+     * 空值标记：user_id、login_time 为空时使用
+     */
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final Comparator<LoginLogDto> SEGMENT_ORDER = Comparator
+            .comparingLong((LoginLogDto row) -> row.getUserId() != null ? row.getUserId() : NULL_LONG)
+            .thenComparingLong(row -> toMillis(row.getLoginTime()))
+            .thenComparingLong(LoginLogDto::getId);
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final long rowCount;
+    private final long minId;
+    private final long maxId;
+    private final long minTime;
+    private final long maxTime;
+
+    private final long[] firstUserIds;
+    private final long[] firstTimes;
+    private final long[] lastUserIds;
+    private final long[] lastTimes;
+    private final long[] blockMinTimes;
+    private final long[] blockMaxTimes;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+
+    private LoginLogSegment(Path path, MappedByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        int size = data.capacity();
+        if (size < HEADER_LENGTH + FOOTER_LENGTH || data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not a login log segment: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + data.getInt(4) + ": " + path);
+        }
+        ByteBuffer footer = data.duplicate().position(size - FOOTER_LENGTH);
+        long indexOffset = footer.getLong();
+        int blockCount = footer.getInt();
+        this.rowCount = footer.getLong();
+        this.minId = footer.getLong();
+        this.maxId = footer.getLong();
+        this.minTime = footer.getLong();
+        this.maxTime = footer.getLong();
+
+        this.firstUserIds = new long[blockCount];
+        this.firstTimes = new long[blockCount];
+        this.lastUserIds = new long[blockCount];
+        this.lastTimes = new long[blockCount];
+        this.blockMinTimes = new long[blockCount];
+        this.blockMaxTimes = new long[blockCount];
+        this.offsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.rawLengths = new int[blockCount];
+        ByteBuffer index = data.duplicate().position((int) indexOffset);
+        for (int i = 0; i < blockCount; i++) {
+            firstUserIds[i] = index.getLong();
+            firstTimes[i] = index.getLong();
+            lastUserIds[i] = index.getLong();
+            lastTimes[i] = index.getLong();
+            blockMinTimes[i] = index.getLong();
+            blockMaxTimes[i] = index.getLong();
+            offsets[i] = index.getLong();
+            compressedLengths[i] = index.getInt();
+            rawLengths[i] = index.getInt();
+            index.getInt();
+        }
+    }
+
+    /**
+     * 打开段文件并映射到内存
+     */
+    public static LoginLogSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return new LoginLogSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 把一批登录日志写成段文件：先写临时文件并刷盘，再原子重命名并刷盘目录，目录中不会出现写了一半的段；
+     * 方法返回时段文件和目录项都已持久化，调用方可以安全地删除源数据
+     *
+     * @param rows 至少一行，会被重新排序
+     */
+    public static LoginLogSegment write(Path directory, List<LoginLogDto> rows) throws IOException {
+        List<LoginLogDto> sorted = new ArrayList<>(rows);
+        sorted.sort(SEGMENT_ORDER);
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (LoginLogDto row : sorted) {
+            minId = Math.min(minId, row.getId());
+            maxId = Math.max(maxId, row.getId());
+            minTime = Math.min(minTime, toMillis(row.getLoginTime()));
+            maxTime = Math.max(maxTime, toMillis(row.getLoginTime()));
+        }
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("login-logs-%019d-%019d%s", minId, maxId, FILE_SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CountingOutputStream counter = new CountingOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(counter);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            int blockCount = 0;
+            try {
+                for (int from = 0; from < sorted.size(); from += BLOCK_ROWS) {
+                    List<LoginLogDto> block = sorted.subList(from, Math.min(from + BLOCK_ROWS, sorted.size()));
+                    byte[] raw = encodeBlock(block);
+                    byte[] compressed = deflate(deflater, raw);
+                    long blockMinTime = Long.MAX_VALUE;
+                    long blockMaxTime = Long.MIN_VALUE;
+                    for (LoginLogDto row : block) {
+                        blockMinTime = Math.min(blockMinTime, toMillis(row.getLoginTime()));
+                        blockMaxTime = Math.max(blockMaxTime, toMillis(row.getLoginTime()));
+                    }
+                    LoginLogDto first = block.get(0);
+                    LoginLogDto last = block.get(block.size() - 1);
+                    indexOut.writeLong(first.getUserId() != null ? first.getUserId() : NULL_LONG);
+                    indexOut.writeLong(toMillis(first.getLoginTime()));
+                    indexOut.writeLong(last.getUserId() != null ? last.getUserId() : NULL_LONG);
+                    indexOut.writeLong(toMillis(last.getLoginTime()));
+                    indexOut.writeLong(blockMinTime);
+                    indexOut.writeLong(blockMaxTime);
+                    indexOut.writeLong(counter.count);
+                    indexOut.writeInt(compressed.length);
+                    indexOut.writeInt(raw.length);
+                    indexOut.writeInt(block.size());
+                    out.write(compressed);
+                    blockCount++;
+                }
+            } finally {
+                deflater.end();
+            }
+
+            long indexOffset = counter.count;
+            out.write(index.toByteArray());
+            out.writeLong(indexOffset);
+            out.writeInt(blockCount);
+            out.writeLong(sorted.size());
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeLong(minTime);
+            out.writeLong(maxTime);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(directory);
+        return open(target);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public LocalDateTime getMaxTime() {
+        return fromMillis(maxTime);
+    }
+
+    /**
+     * 按条件扫描，只解压可能包含匹配行的块，匹配的行按段内顺序回调
+     */
+    public void scan(LoginLogQuery query, Consumer<LoginLogDto> consumer) {
+        long start = query.getStartTime() != null ? toMillis(query.getStartTime()) : Long.MIN_VALUE;
+        long end = query.getEndTime() != null ? toMillis(query.getEndTime()) : Long.MAX_VALUE;
+        if (maxTime < start || minTime >= end) {
+            return;
+        }
+        Long userId = query.getUserId();
+        for (int i = 0; i < offsets.length; i++) {
+            if (blockMaxTimes[i] < start || blockMinTimes[i] >= end) {
+                continue;
+            }
+            // 块覆盖 [(首行user_id, login_time), (末行user_id, login_time)]，与 [(userId, start), (userId, end)) 不相交时跳过
+            if (userId != null && (compare(firstUserIds[i], firstTimes[i], userId, end) >= 0
+                    || compare(lastUserIds[i], lastTimes[i], userId, start) < 0)) {
+                continue;
+            }
+            for (LoginLogDto row : decodeBlock(i)) {
+                long time = toMillis(row.getLoginTime());
+                if (time < start || time >= end) {
+                    continue;
+                }
+                if (userId != null && !userId.equals(row.getUserId())) {
+                    continue;
+                }
+                if (query.getSuccess() != null && !query.getSuccess().equals(row.getSuccess())) {
+                    continue;
+                }
+                consumer.accept(row);
+            }
+        }
+    }
+
+    /**
+     * 段内所有行的id，用于确认归档后热表中的行已删除
+     */
+    public List<Long> ids() {
+        List<Long> ids = new ArrayList<>((int) rowCount);
+        for (int i = 0; i < offsets.length; i++) {
+            for (LoginLogDto row : decodeBlock(i)) {
+                ids.add(row.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static int compare(long userId, long time, long otherUserId, long otherTime) {
+        int byUser = Long.compare(userId, otherUserId);
+        return byUser != 0 ? byUser : Long.compare(time, otherTime);
+    }
+
+    private List<LoginLogDto> decodeBlock(int block) {
+        byte[] raw = new byte[rawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice((int) offsets[block], compressedLengths[block]));
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        List<LoginLogDto> rows = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            while (in.available() > 0) {
+                LoginLogDto row = new LoginLogDto();
+                row.setId(in.readLong());
+                long userId = in.readLong();
+                row.setUserId(userId != NULL_LONG ? userId : null);
+                row.setLoginTime(fromMillis(in.readLong()));
+                row.setIpAddress(readString(in));
+                int userAgentId = in.readInt();
+                row.setUserAgentId(userAgentId >= 0 ? userAgentId : null);
+                row.setLoginType(readString(in));
+                byte success = in.readByte();
+                row.setSuccess(success < 0 ? null : success == 1);
+                row.setErrorMessage(readString(in));
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in " + path, e);
+        }
+        return rows;
+    }
+
+    private static byte[] encodeBlock(List<LoginLogDto> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (LoginLogDto row : rows) {
+            out.writeLong(row.getId());
+            out.writeLong(row.getUserId() != null ? row.getUserId() : NULL_LONG);
+            out.writeLong(toMillis(row.getLoginTime()));
+            writeString(out, row.getIpAddress());
+            out.writeInt(row.getUserAgentId() != null ? row.getUserAgentId() : -1);
+            writeString(out, row.getLoginType());
+            out.writeByte(row.getSuccess() == null ? -1 : row.getSuccess() ? 1 : 0);
+            writeString(out, row.getErrorMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 重命名只修改目录项，需要单独刷盘目录，否则掉电后段文件可能随目录项一起丢失。
+     * Windows不支持以通道方式打开目录，NTFS的元数据日志本身保证重命名持久
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if (System.getProperty("os.name", "").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * LocalDateTime 按UTC换算为毫秒，只用于编码和比较，不涉及时区语义
+     */
+    static long toMillis(LocalDateTime time) {
+        return time != null ? time.toInstant(ZoneOffset.UTC).toEpochMilli() : NULL_LONG;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis != NULL_LONG
+                ? LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC)
+                : null;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
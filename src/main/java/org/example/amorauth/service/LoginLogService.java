@@ -1,41 +1,90 @@
 package org.example.amorauth.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.example.amorauth.common.annotation.ReplicaRead;
 import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
 import org.example.amorauth.entity.LoginLog;
 import org.example.amorauth.entity.User;
 import org.example.amorauth.mapper.LoginLogMapper;
 import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LoginLogService {
 
+    /**
+     * 导出时每批处理的行数：按批补齐用户信息并刷新一次输出流
+     */
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    private static final Comparator<LoginLogDto> NEWEST_FIRST = Comparator
+            .comparing(LoginLogDto::getLoginTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(LoginLogDto::getId, Comparator.reverseOrder());
+
+    private static final String CSV_HEADER =
+            "id,user_id,login_time,ip_address,user_agent,login_type,success,error_message,user_name,user_email";
+
     private final LoginLogMapper loginLogMapper;
+    private final ObjectMapper objectMapper;
+    private final RecentLoginFeed recentLoginFeed;
+    private final UserService userService;
+    private final UserAgentDictionary userAgentDictionary;
+    private final ClientAddressResolver clientAddressResolver;
+    private final LoginMetrics loginMetrics;
+    private final LoginLogArchive loginLogArchive;
+    private final LoginLogReader loginLogReader;
 
     public void recordLogin(User user, HttpServletRequest request, boolean success, String errorMessage) {
+        long start = System.nanoTime();
         try {
             LoginLog loginLog = new LoginLog();
             loginLog.setUserId(user.getId());
             loginLog.setLoginTime(LocalDateTime.now());
-            loginLog.setIpAddress(getClientIpAddress(request));
-            loginLog.setUserAgent(request.getHeader("User-Agent"));
+            loginLog.setIpAddress(clientAddressResolver.resolve(request));
+            loginLog.setUserAgent(UserAgentDictionary.normalize(request.getHeader("User-Agent")));
+            loginLog.setUserAgentId(userAgentDictionary.intern(loginLog.getUserAgent()));
             loginLog.setLoginType("GOOGLE_OAUTH2");
             loginLog.setSuccess(success);
             loginLog.setErrorMessage(errorMessage);
 
             loginLogMapper.insertLoginLog(loginLog);
 
-            log.info("Login log recorded for user: {} ({}), Success: {}",
-                    user.getEmail(), user.getId(), success);
+            // 成功登录同步写入最近登录缓冲，供最近登录列表直接读取
+            if (success) {
+                recentLoginFeed.append(toDto(loginLog, user));
+            }
+
+            loginMetrics.recordStage(LoginMetrics.STAGE_LOGIN_LOG, start, true);
+
+            log.atInfo().setMessage("Login log recorded")
+                    .addKeyValue("userId", user.getId())
+                    .addKeyValue("success", success)
+                    .log();
         } catch (Exception e) {
-            log.error("Failed to record login log for user: {}", user.getEmail(), e);
+            loginMetrics.recordStage(LoginMetrics.STAGE_LOGIN_LOG, start, false);
+            log.error("Failed to record login log for user ID: {}", user.getId(), e);
         }
     }
 
@@ -44,8 +93,9 @@ public class LoginLogService {
             LoginLog loginLog = new LoginLog();
             loginLog.setUserId(userId);
             loginLog.setLoginTime(LocalDateTime.now());
-            loginLog.setIpAddress(getClientIpAddress(request));
-            loginLog.setUserAgent(request.getHeader("User-Agent"));
+            loginLog.setIpAddress(clientAddressResolver.resolve(request));
+            loginLog.setUserAgent(UserAgentDictionary.normalize(request.getHeader("User-Agent")));
+            loginLog.setUserAgentId(userAgentDictionary.intern(loginLog.getUserAgent()));
             loginLog.setLoginType("GOOGLE_OAUTH2");
             loginLog.setSuccess(success);
             loginLog.setErrorMessage(errorMessage);
@@ -56,44 +106,296 @@ public class LoginLogService {
         }
     }
 
+    @ReplicaRead
     public List<LoginLogDto> getUserLoginHistory(Long userId, Integer limit) {
         if (limit == null || limit <= 0) {
             limit = 10;
         }
-        return loginLogMapper.findByUserId(userId, limit);
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(userId);
+        return findLoginLogs(query, limit);
+    }
+
+    /**
+     * 按条件查询登录日志，按登录时间倒序取前 limit 条
+     * 热表结果不足 limit 条，或已经触及冷归档的时间范围时，再扫描归档段并合并；
+     * 归档写入与热表删除之间的短暂重叠按id去重
+     */
+    @ReplicaRead
+    public List<LoginLogDto> findLoginLogs(LoginLogQuery query, int limit) {
+        List<LoginLogDto> hot = loginLogMapper.findByQuery(query, limit);
+        if (!reachesArchive(query, hot, limit)) {
+            return fillDisplayFields(hot);
+        }
+        Map<Long, LoginLogDto> merged = new LinkedHashMap<>();
+        for (LoginLogDto dto : hot) {
+            merged.put(dto.getId(), dto);
+        }
+        for (LoginLogDto dto : loginLogArchive.find(query, limit)) {
+            merged.putIfAbsent(dto.getId(), dto);
+        }
+        List<LoginLogDto> logs = new ArrayList<>(merged.values());
+        logs.sort(NEWEST_FIRST);
+        return fillDisplayFields(logs.size() > limit ? new ArrayList<>(logs.subList(0, limit)) : logs);
     }
 
+    /**
+     * 不开启事务：缓冲命中时不占用数据库连接，只有回退查询在只读事务中执行
+     */
     public List<LoginLogDto> getRecentLoginLogs(Integer limit) {
         if (limit == null || limit <= 0) {
             limit = 20;
         }
-        return loginLogMapper.findRecentLogs(limit);
+
+        // 优先从内存缓冲读取，超出缓冲范围时再查询数据库
+        List<LoginLogDto> recent = recentLoginFeed.getRecent(limit);
+        if (recent != null) {
+            return recent;
+        }
+        return fillDisplayFields(loginLogReader.findRecentLogs(limit));
     }
 
+    /**
+     * 查询自 since 以来有过成功登录的用户ID，按最近登录时间倒序，最多 limit 个
+     */
+    @ReplicaRead
+    public List<Long> getRecentlyActiveUserIds(LocalDateTime since, int limit) {
+        return loginLogMapper.findActiveUserIdsSince(since, limit);
+    }
+
+    /**
+     * 以NDJSON格式流式导出登录日志
+     * 通过MyBatis Cursor（服务端游标）分批读取并写出，内存占用与行数无关；
+     * 客户端读取缓慢时写操作会阻塞，从而自然地对数据库读取形成背压。
+     * 热表读完后追加冷归档中的行；热表最小id与游标在同一个只读事务中读取，看到的是同一个快照，
+     * 归档任务写完段文件、尚未删除热表的行只从热表导出一次
+     */
+    @ReplicaRead
+    public long exportLoginLogsAsNdjson(LoginLogQuery query, OutputStream out) throws IOException {
+        Long hotMinId = loginLogMapper.findMinId();
+        long rows = 0;
+        List<LoginLogDto> batch = new ArrayList<>(EXPORT_FLUSH_ROWS);
+        try (Cursor<LoginLogDto> cursor = loginLogMapper.streamLogs(query);
+             SequenceWriter writer = objectMapper.writer()
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            for (LoginLogDto dto : cursor) {
+                batch.add(dto);
+                if (batch.size() == EXPORT_FLUSH_ROWS) {
+                    rows += writeNdjsonBatch(writer, batch);
+                }
+            }
+            rows += appendArchived(query, hotMinId, batch, pending -> writeNdjsonBatch(writer, pending));
+            rows += writeNdjsonBatch(writer, batch);
+            out.write('\n');
+        }
+        log.info("Exported {} login logs as NDJSON", rows);
+        return rows;
+    }
+
+    /**
+     * 以CSV格式流式导出登录日志
+     */
+    @ReplicaRead
+    public long exportLoginLogsAsCsv(LoginLogQuery query, OutputStream out) throws IOException {
+        Long hotMinId = loginLogMapper.findMinId();
+        long rows = 0;
+        List<LoginLogDto> batch = new ArrayList<>(EXPORT_FLUSH_ROWS);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Cursor<LoginLogDto> cursor = loginLogMapper.streamLogs(query)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (LoginLogDto dto : cursor) {
+                batch.add(dto);
+                if (batch.size() == EXPORT_FLUSH_ROWS) {
+                    rows += writeCsvBatch(writer, batch);
+                }
+            }
+            rows += appendArchived(query, hotMinId, batch, pending -> writeCsvBatch(writer, pending));
+            rows += writeCsvBatch(writer, batch);
+        }
+        log.info("Exported {} login logs as CSV", rows);
+        return rows;
+    }
+
+    /**
+     * 热表计数加上冷归档计数，归档中仍留在热表的行不重复计入（同导出，两次查询共用一个事务快照）
+     */
+    @ReplicaRead
     public long getUserLoginCount(Long userId) {
-        return loginLogMapper.countByUserId(userId);
+        if (loginLogArchive.isEmpty()) {
+            return loginLogMapper.countByUserId(userId);
+        }
+        Long hotMinId = loginLogMapper.findMinId();
+        long count = loginLogMapper.countByUserId(userId);
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(userId);
+        return count + loginLogArchive.count(query, hotMinId);
     }
 
     public LoginLog getLatestLoginByUser(Long userId) {
-        return loginLogMapper.findLatestByUserId(userId);
+        LoginLog loginLog = loginLogMapper.findLatestByUserId(userId);
+        if (loginLog != null) {
+            loginLog.setUserAgent(userAgentDictionary.resolve(loginLog.getUserAgentId()));
+        }
+        return loginLog;
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
+    /**
+     * 热表已经取满 limit 条且最旧的一条仍晚于所有归档数据时，归档中不可能有更新的行，不必扫描
+     */
+    private boolean reachesArchive(LoginLogQuery query, List<LoginLogDto> hot, int limit) {
+        LocalDateTime maxArchivedTime = loginLogArchive.getMaxArchivedTime();
+        if (maxArchivedTime == null
+                || (query.getStartTime() != null && query.getStartTime().isAfter(maxArchivedTime))) {
+            return false;
+        }
+        if (hot.size() < limit) {
+            return true;
         }
+        LocalDateTime oldestHot = hot.get(hot.size() - 1).getLoginTime();
+        return oldestHot == null || !oldestHot.isAfter(maxArchivedTime);
+    }
+
+    /**
+     * 导出时热表游标读完后，按同样的批次追加冷归档中的匹配行
+     */
+    private long appendArchived(LoginLogQuery query, Long hotMinId, List<LoginLogDto> batch,
+                                BatchWriter batchWriter) throws IOException {
+        AtomicLong rows = new AtomicLong();
+        try {
+            loginLogArchive.forEach(query, hotMinId, dto -> {
+                batch.add(dto);
+                if (batch.size() == EXPORT_FLUSH_ROWS) {
+                    try {
+                        rows.addAndGet(batchWriter.write(batch));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows.get();
+    }
+
+    @FunctionalInterface
+    private interface BatchWriter {
+        int write(List<LoginLogDto> batch) throws IOException;
+    }
+
+    private LoginLogDto toDto(LoginLog loginLog, User user) {
+        LoginLogDto dto = new LoginLogDto();
+        dto.setId(loginLog.getId());
+        dto.setUserId(loginLog.getUserId());
+        dto.setLoginTime(loginLog.getLoginTime());
+        dto.setIpAddress(loginLog.getIpAddress());
+        dto.setUserAgentId(loginLog.getUserAgentId());
+        dto.setUserAgent(loginLog.getUserAgent());
+        dto.setLoginType(loginLog.getLoginType());
+        dto.setSuccess(loginLog.getSuccess());
+        dto.setErrorMessage(loginLog.getErrorMessage());
+        dto.setUserName(user.getName());
+        dto.setUserEmail(user.getEmail());
+        return dto;
+    }
+
+    /**
+     * 用户名和邮箱不再通过JOIN查询，按页内去重后的用户ID从用户缓存批量补齐；
+     * User-Agent 同样由字典id批量还原
+     */
+    private List<LoginLogDto> fillDisplayFields(List<LoginLogDto> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return logs;
+        }
+        List<Long> userIds = new ArrayList<>(logs.size());
+        List<Integer> userAgentIds = new ArrayList<>(logs.size());
+        for (LoginLogDto dto : logs) {
+            userIds.add(dto.getUserId());
+            userAgentIds.add(dto.getUserAgentId());
+        }
+        Map<Long, User> users = userService.findByIds(userIds);
+        Map<Integer, String> userAgents = userAgentDictionary.resolve(userAgentIds);
+        for (LoginLogDto dto : logs) {
+            User user = users.get(dto.getUserId());
+            if (user != null) {
+                dto.setUserName(user.getName());
+                dto.setUserEmail(user.getEmail());
+            }
+            dto.setUserAgent(userAgents.get(dto.getUserAgentId()));
+        }
+        return logs;
+    }
 
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
+    private int writeNdjsonBatch(SequenceWriter writer, List<LoginLogDto> batch) throws IOException {
+        int count = batch.size();
+        for (LoginLogDto dto : fillDisplayFields(batch)) {
+            writer.write(dto);
         }
+        writer.flush();
+        batch.clear();
+        return count;
+    }
 
-        String xForwardedForCloudflare = request.getHeader("CF-Connecting-IP");
-        if (xForwardedForCloudflare != null && !xForwardedForCloudflare.isEmpty()) {
-            return xForwardedForCloudflare;
+    private int writeCsvBatch(Writer writer, List<LoginLogDto> batch) throws IOException {
+        int count = batch.size();
+        for (LoginLogDto dto : fillDisplayFields(batch)) {
+            writeCsvRow(writer, dto);
         }
+        writer.flush();
+        batch.clear();
+        return count;
+    }
 
-        return request.getRemoteAddr();
+    private void writeCsvRow(Writer writer, LoginLogDto dto) throws IOException {
+        writeCsvField(writer, dto.getId());
+        writer.write(',');
+        writeCsvField(writer, dto.getUserId());
+        writer.write(',');
+        writeCsvField(writer, dto.getLoginTime());
+        writer.write(',');
+        writeCsvField(writer, dto.getIpAddress());
+        writer.write(',');
+        writeCsvField(writer, dto.getUserAgent());
+        writer.write(',');
+        writeCsvField(writer, dto.getLoginType());
+        writer.write(',');
+        writeCsvField(writer, dto.getSuccess());
+        writer.write(',');
+        writeCsvField(writer, dto.getErrorMessage());
+        writer.write(',');
+        writeCsvField(writer, dto.getUserName());
+        writer.write(',');
+        writeCsvField(writer, dto.getUserEmail());
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean needsQuote = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuote = true;
+                break;
+            }
+        }
+        if (!needsQuote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
     }
 }
@@ -0,0 +1,141 @@
+package org.example.amorauth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录链路的分阶段指标
+ * - auth.login.stage：各阶段耗时（stage=token/userinfo/user_upsert/cache_write/login_log，outcome=success/error），
+ *   带百分位直方图，可在Prometheus中跨实例聚合p50/p99/p999
+ * - auth.login：登录结果计数（outcome=success/failure）
+ * - auth.user.cache：用户缓存命中计数（lookup=id/google_id/email/batch/version，result=hit/miss）
+ * - auth.login.rate_limited：登录入口被限流拒绝的请求数（endpoint=authorization/callback）
+ * 标签取值均为固定集合；所有Meter在构造时注册好，热路径上不再查找注册表
+ */
+@Component
+public class LoginMetrics {
+
+    public static final String STAGE_TOKEN = "token";
+    public static final String STAGE_USERINFO = "userinfo";
+    public static final String STAGE_USER_UPSERT = "user_upsert";
+    public static final String STAGE_CACHE_WRITE = "cache_write";
+    public static final String STAGE_LOGIN_LOG = "login_log";
+
+    public static final String LOOKUP_ID = "id";
+    public static final String LOOKUP_GOOGLE_ID = "google_id";
+    public static final String LOOKUP_EMAIL = "email";
+    public static final String LOOKUP_BATCH = "batch";
+    public static final String LOOKUP_VERSION = "version";
+
+    public static final String ENDPOINT_AUTHORIZATION = "authorization";
+    public static final String ENDPOINT_CALLBACK = "callback";
+
+    private static final List<String> STAGES =
+            List.of(STAGE_TOKEN, STAGE_USERINFO, STAGE_USER_UPSERT, STAGE_CACHE_WRITE, STAGE_LOGIN_LOG);
+    private static final List<String> LOOKUPS =
+            List.of(LOOKUP_ID, LOOKUP_GOOGLE_ID, LOOKUP_EMAIL, LOOKUP_BATCH, LOOKUP_VERSION);
+
+    private final Map<String, Timer> successTimers = new HashMap<>();
+    private final Map<String, Timer> errorTimers = new HashMap<>();
+    private final Map<String, Counter> cacheHits = new HashMap<>();
+    private final Map<String, Counter> cacheMisses = new HashMap<>();
+    private final Counter loginSuccess;
+    private final Counter loginFailure;
+    private final Counter authorizationRateLimited;
+    private final Counter callbackRateLimited;
+
+    public LoginMetrics(MeterRegistry meterRegistry) {
+        for (String stage : STAGES) {
+            successTimers.put(stage, stageTimer(meterRegistry, stage, "success"));
+            errorTimers.put(stage, stageTimer(meterRegistry, stage, "error"));
+        }
+        for (String lookup : LOOKUPS) {
+            cacheHits.put(lookup, cacheCounter(meterRegistry, lookup, "hit"));
+            cacheMisses.put(lookup, cacheCounter(meterRegistry, lookup, "miss"));
+        }
+        loginSuccess = Counter.builder("auth.login")
+                .description("OAuth2 login outcomes")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        loginFailure = Counter.builder("auth.login")
+                .description("OAuth2 login outcomes")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+        authorizationRateLimited = rateLimitedCounter(meterRegistry, ENDPOINT_AUTHORIZATION);
+        callbackRateLimited = rateLimitedCounter(meterRegistry, ENDPOINT_CALLBACK);
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param startNanos 阶段开始时的 System.nanoTime()
+     */
+    public void recordStage(String stage, long startNanos, boolean success) {
+        Timer timer = success ? successTimers.get(stage) : errorTimers.get(stage);
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void cacheHit(String lookup) {
+        cacheHits.get(lookup).increment();
+    }
+
+    public void cacheMiss(String lookup) {
+        cacheMisses.get(lookup).increment();
+    }
+
+    public void cacheLookups(String lookup, int hits, int misses) {
+        if (hits > 0) {
+            cacheHits.get(lookup).increment(hits);
+        }
+        if (misses > 0) {
+            cacheMisses.get(lookup).increment(misses);
+        }
+    }
+
+    public void loginSucceeded() {
+        loginSuccess.increment();
+    }
+
+    public void loginFailed() {
+        loginFailure.increment();
+    }
+
+    public void rateLimited(String endpoint) {
+        (ENDPOINT_CALLBACK.equals(endpoint) ? callbackRateLimited : authorizationRateLimited).increment();
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage, String outcome) {
+        return Timer.builder("auth.login.stage")
+                .description("Latency of each step in the OAuth2 login pipeline")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+    private static Counter rateLimitedCounter(MeterRegistry meterRegistry, String endpoint) {
+        return Counter.builder("auth.login.rate_limited")
+                .description("Login requests rejected by the rate limiter")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String lookup, String result) {
+        return Counter.builder("auth.user.cache")
+                .description("User cache lookups")
+                .tag("lookup", lookup)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 限流器
+ * 正常情况下使用Redis令牌桶（Lua脚本原子执行，多节点共享额度）；
+ * Redis不可用时在一段时间内切换到进程内按key的计数器，避免每次判定都等待Redis超时；
+ * Redis熔断器打开期间同样直接使用本地计数，调用失败也计入熔断器
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    /**
+     * 令牌桶脚本：按Redis服务器时间补充令牌，返回1表示放行，0表示拒绝
+     */
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+            local allowed = 0
+            if tokens >= 1 then
+                tokens = tokens - 1
+                allowed = 1
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000)
+            return allowed
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final long redisRetryIntervalMillis;
+
+    /**
+     * 本地计数，每个key独立计数互不影响；按访问顺序淘汰，key数量不超过 rate-limit.local.max-keys，
+     * 大量伪造的key只会挤掉最久未访问的计数，不会占满内存或连累其他key。
+     * 只在Redis不可用期间使用，用一把锁保护即可
+     */
+    private final Map<String, LocalWindow> localWindows;
+
+
+    private volatile long redisDownUntil;
+
+    public RateLimiter(StringRedisTemplate stringRedisTemplate,
+                       RedisCircuitBreaker redisCircuitBreaker,
+                       @Value("${rate-limit.redis-retry-interval:5000}") long redisRetryIntervalMillis,
+                       @Value("${rate-limit.local.max-keys:100000}") int maxLocalKeys) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.redisRetryIntervalMillis = redisRetryIntervalMillis;
+        this.localWindows = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalWindow> eldest) {
+                return size() > maxLocalKeys;
+            }
+        };
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key             限流维度的key，如 rate:ip:1.2.3.4
+     * @param capacity        桶容量（允许的突发请求数）
+     * @param refillPerSecond 每秒补充的令牌数
+     */
+    public boolean tryAcquire(String key, int capacity, double refillPerSecond) {
+        long now = System.currentTimeMillis();
+        if (now >= redisDownUntil && redisCircuitBreaker.isAvailable()) {
+            try {
+                Long allowed = stringRedisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(key),
+                        Integer.toString(capacity), Double.toString(refillPerSecond));
+                if (allowed != null) {
+                    return allowed == 1L;
+                }
+            } catch (Exception e) {
+                redisCircuitBreaker.recordFailure(e);
+                redisDownUntil = now + redisRetryIntervalMillis;
+                log.warn("Redis rate limiter unavailable, using local fallback for {} ms: {}",
+                        redisRetryIntervalMillis, e.getMessage());
+            }
+        }
+        return tryAcquireLocal(key, capacity, refillPerSecond, now);
+    }
+
+    /**
+     * 本地固定窗口计数：窗口长度为桶从空到满所需的时间，窗口内最多放行 capacity 次
+     */
+    private boolean tryAcquireLocal(String key, int capacity, double refillPerSecond, long now) {
+        long windowMillis = Math.max(1L, (long) (capacity / refillPerSecond * 1000));
+        long window = now / windowMillis;
+        synchronized (localWindows) {
+            LocalWindow current = localWindows.computeIfAbsent(key, k -> new LocalWindow());
+            if (current.window != window) {
+                current.window = window;
+                current.count = 0;
+            }
+            if (current.count >= capacity) {
+                return false;
+            }
+            current.count++;
+            return true;
+        }
+    }
+
+    private static final class LocalWindow {
+        private long window = -1;
+        private int count;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.amorauth.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.amorauth.entity.User;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 资料读取的非阻塞实现
+ * 缓存命中时全程不占用线程：Redis读取通过 ReactiveRedisTemplate 在Lettuce的事件循环上完成；
+ * 只有缓存未命中回源数据库（JDBC本身是阻塞的）和登录次数统计才切换到 boundedElastic 线程池执行，
+ * 回源复用 UserService 的阻塞实现，缓存key、序列化方式和回填逻辑与其保持一致；
+ * Redis熔断打开或读取失败时同样回源，由 UserService 使用本地缓存或数据库
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveUserReader {
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final UserService userService;
+    private final LoginLogService loginLogService;
+    private final LoginMetrics loginMetrics;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+
+    public Mono<User> findByGoogleId(String googleId) {
+        Mono<User> cached = reactiveRedisTemplate.opsForValue().get(UserCacheKeys.profile(googleId))
+                .cast(User.class)
+                .doOnNext(user -> loginMetrics.cacheHit(LoginMetrics.LOOKUP_GOOGLE_ID));
+        return redisCircuitBreaker.call(cached, Mono.empty())
+                // 未命中时由 UserService 查库并回填缓存（其中的缓存未命中计数也在那里记录）
+                .switchIfEmpty(blocking(() -> userService.findByGoogleId(googleId)));
+    }
+
+    /**
+     * 获取用户资料的ETag，与 UserService.getProfileETag 的结果相同
+     *
+     * @return 用户不存在时为空
+     */
+    public Mono<String> getProfileETag(String googleId) {
+        Mono<String> cached = reactiveStringRedisTemplate.opsForValue().get(UserCacheKeys.version(googleId))
+                .doOnNext(version -> loginMetrics.cacheHit(LoginMetrics.LOOKUP_VERSION));
+        return redisCircuitBreaker.call(cached, Mono.empty())
+                .switchIfEmpty(Mono.defer(() -> {
+                    loginMetrics.cacheMiss(LoginMetrics.LOOKUP_VERSION);
+                    return findByGoogleId(googleId).map(UserService::versionOf);
+                }))
+                .map(version -> UserService.profileETag(googleId, version));
+    }
+
+    public Mono<Long> getUserLoginCount(Long userId) {
+        return blocking(() -> loginLogService.getUserLoginCount(userId));
+    }
+
+    /**
+     * 阻塞调用放到 boundedElastic 线程池，返回 null 时为空
+     */
+    private static <T> Mono<T> blocking(Callable<T> callable) {
+        return Mono.fromCallable(callable).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.dto.LoginLogDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 最近登录事件缓冲
+ * 进程内维护一个定长环形缓冲区，同时写入一个限长的Redis Stream供多节点共享，
+ * 使 /api/admin/recent-logins 无需每次都执行 login_logs JOIN users 的排序查询。
+ * 只记录成功登录，失败采样不进入缓冲（数据库回退查询同样只取成功登录）
+ */
+@Service
+@Slf4j
+public class RecentLoginFeed {
+
+    private static final String STREAM_FIELD = "log";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final String streamKey;
+    private final int capacity;
+
+    private final LoginLogDto[] ring;
+    /**
+     * 下一个写入位置
+     */
+    private int head;
+    private int size;
+
+    public RecentLoginFeed(RedisTemplate<String, Object> redisTemplate,
+                           RedisCircuitBreaker redisCircuitBreaker,
+                           @Value("${login-log.recent-feed.capacity:1000}") int capacity,
+                           @Value("${login-log.recent-feed.stream-key:login:recent}") String streamKey) {
+        this.redisTemplate = redisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.capacity = capacity;
+        this.streamKey = streamKey;
+        this.ring = new LoginLogDto[capacity];
+    }
+
+    /**
+     * 记录一条登录事件，在登录日志写入数据库之后调用
+     */
+    public void append(LoginLogDto dto) {
+        synchronized (ring) {
+            ring[head] = dto;
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+        }
+
+        // Redis熔断期间只写本地缓冲区
+        if (!redisCircuitBreaker.isAvailable()) {
+            return;
+        }
+        try {
+            MapRecord<String, String, Object> record = MapRecord.create(streamKey, Map.of(STREAM_FIELD, dto));
+            redisTemplate.opsForStream().add(record, XAddOptions.maxlen(capacity).approximateTrimming(true));
+        } catch (Exception e) {
+            log.warn("Failed to append login event to Redis stream {}: {}", streamKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取最近的登录事件（按时间倒序）
+     * 优先读取Redis Stream（包含所有节点的事件），Redis不可用时退回本地缓冲区；
+     * 缓冲中的数据不足 limit 条时返回 null，由调用方回退到数据库查询
+     */
+    public List<LoginLogDto> getRecent(int limit) {
+        if (limit > capacity) {
+            return null;
+        }
+
+        if (!redisCircuitBreaker.isAvailable()) {
+            return getLocalRecent(limit);
+        }
+        try {
+            List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                    .reverseRange(streamKey, Range.unbounded(), Limit.limit().count(limit));
+            if (records != null && records.size() >= limit) {
+                List<LoginLogDto> result = new ArrayList<>(records.size());
+                for (MapRecord<String, Object, Object> record : records) {
+                    result.add((LoginLogDto) record.getValue().get(STREAM_FIELD));
+                }
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read recent logins from Redis stream {}: {}", streamKey, e.getMessage());
+        }
+
+        return getLocalRecent(limit);
+    }
+
+    private List<LoginLogDto> getLocalRecent(int limit) {
+        synchronized (ring) {
+            if (size < limit) {
+                return null;
+            }
+            List<LoginLogDto> result = new ArrayList<>(limit);
+            for (int i = 1; i <= limit; i++) {
+                result.add(ring[(head - i + capacity) % capacity]);
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.amorauth.service;
+
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.PoolException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Redis熔断器
+ * 连续的可用性失败（连接失败、命令超时、连接池获取超时）达到 failure-threshold 次后打开：之后的Redis调用直接走降级逻辑，
+ * 请求线程不再等待超时；打开期间由定时任务用PING探测，至少打开 open-duration 后探测成功才关闭，
+ * 关闭时依次执行恢复回调（例如补写打开期间跳过的缓存）；
+ * Redis返回的错误（如不支持的命令）说明服务可达，只走降级逻辑，不计入失败次数
+ */
+@Component
+@Slf4j
+public class RedisCircuitBreaker {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final Counter shortCircuited;
+
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    public RedisCircuitBreaker(StringRedisTemplate stringRedisTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${redis.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${redis.circuit-breaker.open-duration:5000}") long openDurationMillis) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.shortCircuited = Counter.builder("redis.circuit.short_circuited")
+                .description("Redis calls skipped because the circuit was open")
+                .register(meterRegistry);
+        Gauge.builder("redis.circuit.open", this, breaker -> breaker.open ? 1 : 0)
+                .description("1 when Redis calls are short-circuited to the fallback")
+                .register(meterRegistry);
+    }
+
+    public boolean isAvailable() {
+        return !open;
+    }
+
+    /**
+     * 执行Redis读取，熔断打开或调用失败时返回降级结果
+     */
+    public <T> T call(Supplier<T> redisCall, Supplier<T> fallback) {
+        if (open) {
+            shortCircuited.increment();
+            return fallback.get();
+        }
+        T result;
+        try {
+            result = redisCall.get();
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            return fallback.get();
+        }
+        recordSuccess();
+        return result;
+    }
+
+    /**
+     * 执行Redis写入，熔断打开或调用失败时执行降级逻辑
+     */
+    public void run(Runnable redisCall, Runnable fallback) {
+        call(() -> {
+            redisCall.run();
+            return null;
+        }, () -> {
+            fallback.run();
+            return null;
+        });
+    }
+
+    /**
+     * 非阻塞版本，订阅时才判断熔断状态
+     */
+    public <T> Mono<T> call(Mono<T> redisCall, Mono<T> fallback) {
+        return Mono.defer(() -> {
+            if (open) {
+                shortCircuited.increment();
+                return fallback;
+            }
+            return redisCall
+                    .doOnSuccess(result -> recordSuccess())
+                    .onErrorResume(e -> {
+                        recordFailure(e);
+                        return fallback;
+                    });
+        });
+    }
+
+    /**
+     * 注册熔断关闭时执行的回调，在探测线程中执行
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    private void recordSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * 记录一次Redis调用失败，只有可用性失败才计入连续失败次数
+     */
+    public void recordFailure(Throwable e) {
+        if (!isAvailabilityFailure(e)) {
+            log.debug("Redis call failed without affecting the circuit: {}", e.getMessage());
+            return;
+        }
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failures >= failureThreshold && !open) {
+            synchronized (this) {
+                if (!open) {
+                    openedAt = System.currentTimeMillis();
+                    open = true;
+                    log.warn("Redis circuit opened after {} consecutive failures, serving from fallback: {}",
+                            failures, e.getMessage());
+                }
+            }
+        } else {
+            log.debug("Redis call failed ({} consecutive): {}", failures, e.getMessage());
+        }
+    }
+
+    private static boolean isAvailabilityFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof PoolException
+                    || cause instanceof RedisConnectionException
+                    || cause instanceof RedisCommandTimeoutException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${redis.circuit-breaker.probe-interval:1000}")
+    public void probe() {
+        if (!open || System.currentTimeMillis() - openedAt < openDurationMillis) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RedisConnection::ping);
+        } catch (RuntimeException e) {
+            log.debug("Redis probe failed, circuit stays open: {}", e.getMessage());
+            return;
+        }
+        consecutiveFailures.set(0);
+        open = false;
+        log.info("Redis circuit closed after {} ms", System.currentTimeMillis() - openedAt);
+        for (Runnable listener : recoveryListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Redis recovery callback failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.amorauth.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按模式统计和删除key的管理操作
+ * 用SCAN游标代替KEYS，不会长时间阻塞Redis；删除用UNLINK分批执行，由Redis在后台释放内存。
+ * Redis Cluster下SCAN只遍历单个节点，因此对每个master节点并行扫描并汇总结果；单机时只扫描一次。
+ * 同一时间只允许一个扫描，其余调用抛出 {@link ScanInProgressException}；
+ * 并行扫描使用共享的线程池，线程数等于master节点数，空闲后线程自动退出
+ */
+@Component
+@Slf4j
+public class RedisKeyScanner {
+
+    /**
+     * 每次SCAN返回的key数量提示
+     */
+    private static final int SCAN_COUNT = 1000;
+
+    /**
+     * 每条UNLINK包含的key数量
+     */
+    private static final int UNLINK_BATCH_SIZE = 500;
+
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+
+    public RedisKeyScanner(RedisConnectionFactory redisConnectionFactory) {
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "redis-key-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 统计匹配模式的key数量
+     */
+    public long count(String pattern) {
+        return sumOverMasters(pattern, false);
+    }
+
+    /**
+     * 删除匹配模式的key
+     *
+     * @return 删除的key数量
+     */
+    public long delete(String pattern) {
+        return sumOverMasters(pattern, true);
+    }
+
+    /**
+     * 所有key的总数，集群模式下为各master节点DBSIZE之和
+     */
+    public long dbSize() {
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            Long size = connection.serverCommands().dbSize();
+            return size != null ? size : 0L;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private long sumOverMasters(String pattern, boolean delete) {
+        if (!scanning.compareAndSet(false, true)) {
+            throw new ScanInProgressException();
+        }
+        try {
+            return scanMasters(pattern, delete);
+        } finally {
+            scanning.set(false);
+        }
+    }
+
+    private long scanMasters(String pattern, boolean delete) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            if (!(connection instanceof RedisClusterConnection clusterConnection)) {
+                return scan(connection, connection.keyCommands().scan(options), delete);
+            }
+            List<RedisClusterNode> masters = StreamSupport.stream(clusterConnection.clusterGetNodes().spliterator(), false)
+                    .filter(RedisClusterNode::isMaster)
+                    .toList();
+            resizeExecutor(Math.max(1, masters.size()));
+            List<CompletableFuture<Long>> tasks = masters.stream()
+                    .map(node -> CompletableFuture.supplyAsync(
+                            () -> scan(clusterConnection, clusterConnection.scan(node, options), delete), executor))
+                    .toList();
+            long total = tasks.stream().mapToLong(CompletableFuture::join).sum();
+            log.debug("Scanned pattern {} on {} master nodes: {} keys", pattern, masters.size(), total);
+            return total;
+        }
+    }
+
+    private static long scan(RedisConnection connection, Cursor<byte[]> cursor, boolean delete) {
+        long count = 0;
+        List<byte[]> batch = new ArrayList<>(UNLINK_BATCH_SIZE);
+        try (cursor) {
+            while (cursor.hasNext()) {
+                byte[] key = cursor.next();
+                count++;
+                if (delete) {
+                    batch.add(key);
+                    if (batch.size() == UNLINK_BATCH_SIZE) {
+                        unlink(connection, batch);
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            unlink(connection, batch);
+        }
+        return count;
+    }
+
+    private static void unlink(RedisConnection connection, List<byte[]> keys) {
+        connection.keyCommands().unlink(keys.toArray(new byte[0][]));
+    }
+
+    /**
+     * 线程数跟随master节点数；只在持有扫描标记时调用，不会并发调整
+     */
+    private void resizeExecutor(int threads) {
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else if (threads < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+
+    /**
+     * 已有扫描在进行中
+     */
+    public static class ScanInProgressException extends IllegalStateException {
+        public ScanInProgressException() {
+            super("Another Redis key scan is already running");
+        }
+    }
+}
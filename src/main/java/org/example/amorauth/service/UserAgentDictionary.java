@@ -0,0 +1,163 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.entity.UserAgent;
+import org.example.amorauth.mapper.UserAgentMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * User-Agent字典编码
+ * 相同的浏览器标识只在 user_agents 表中保存一份，login_logs 只保存其id；
+ * 进程内缓存双向映射，常见User-Agent的写入和读取都不需要访问数据库。
+ * User-Agent由客户端任意填写：入库前去掉首尾空白并截断到 {@link #MAX_LENGTH} 个字符，
+ * 缓存按访问顺序淘汰，大量随机User-Agent只会挤出冷门条目，常见User-Agent仍然命中
+ */
+@Service
+@Slf4j
+public class UserAgentDictionary {
+
+    /**
+     * 保存的User-Agent最大长度，与 user_agents.user_agent 列长度一致
+     */
+    public static final int MAX_LENGTH = 512;
+
+    private final UserAgentMapper userAgentMapper;
+
+    /**
+     * 两个方向各自是访问顺序的LinkedHashMap，访问时在各自对象上同步
+     */
+    private final Map<String, Integer> idByUserAgent;
+    private final Map<Integer, String> userAgentById;
+
+    public UserAgentDictionary(UserAgentMapper userAgentMapper,
+                               @Value("${login-log.user-agent.max-cached-entries:10000}") int maxCachedEntries) {
+        this.userAgentMapper = userAgentMapper;
+        this.idByUserAgent = lruMap(maxCachedEntries);
+        this.userAgentById = lruMap(maxCachedEntries);
+    }
+
+    /**
+     * 去掉首尾空白并截断到 {@link #MAX_LENGTH} 个字符，不拆开代理对；空白串视为没有User-Agent
+     */
+    public static String normalize(String userAgent) {
+        if (userAgent == null) {
+            return null;
+        }
+        String trimmed = userAgent.strip();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        if (trimmed.length() <= MAX_LENGTH) {
+            return trimmed;
+        }
+        int end = Character.isHighSurrogate(trimmed.charAt(MAX_LENGTH - 1)) ? MAX_LENGTH - 1 : MAX_LENGTH;
+        return trimmed.substring(0, end);
+    }
+
+    /**
+     * 获取User-Agent对应的id，不存在时写入字典表
+     */
+    public Integer intern(String userAgent) {
+        userAgent = normalize(userAgent);
+        if (userAgent == null) {
+            return null;
+        }
+
+        Integer id;
+        synchronized (idByUserAgent) {
+            id = idByUserAgent.get(userAgent);
+        }
+        if (id != null) {
+            return id;
+        }
+
+        byte[] hash = hash(userAgent);
+        id = userAgentMapper.findIdByHash(hash);
+        if (id == null) {
+            UserAgent entity = new UserAgent();
+            entity.setUaHash(hash);
+            entity.setUserAgent(userAgent);
+            userAgentMapper.insertUserAgent(entity);
+            id = entity.getId();
+            log.debug("Interned new user agent as id {}", id);
+        }
+
+        remember(id, userAgent);
+        return id;
+    }
+
+    /**
+     * 批量将id还原为User-Agent字符串，缓存未命中的id用一条 IN 查询加载
+     */
+    public Map<Integer, String> resolve(Collection<Integer> ids) {
+        Map<Integer, String> result = new HashMap<>();
+        Set<Integer> missedIds = new HashSet<>();
+        for (Integer id : ids) {
+            if (id == null || result.containsKey(id)) {
+                continue;
+            }
+            String userAgent;
+            synchronized (userAgentById) {
+                userAgent = userAgentById.get(id);
+            }
+            if (userAgent != null) {
+                result.put(id, userAgent);
+            } else {
+                missedIds.add(id);
+            }
+        }
+
+        if (!missedIds.isEmpty()) {
+            for (UserAgent entity : userAgentMapper.findByIds(missedIds)) {
+                result.put(entity.getId(), entity.getUserAgent());
+                remember(entity.getId(), entity.getUserAgent());
+            }
+        }
+        return result;
+    }
+
+    public String resolve(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        return resolve(List.of(id)).get(id);
+    }
+
+    private void remember(Integer id, String userAgent) {
+        synchronized (idByUserAgent) {
+            idByUserAgent.put(userAgent, id);
+        }
+        synchronized (userAgentById) {
+            userAgentById.put(id, userAgent);
+        }
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static byte[] hash(String userAgent) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(userAgent.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
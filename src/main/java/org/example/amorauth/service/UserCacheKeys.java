@@ -0,0 +1,41 @@
+package org.example.amorauth.service;
+
+import java.util.Locale;
+
+/**
+ * 用户缓存的key命名
+ * 用户资料只保存一份，key带 {googleId} 哈希标签，资料和版本号在Redis Cluster中落在同一个slot，
+ * 同一用户的多key操作不会跨slot；按ID、邮箱查找通过索引key（值为Google ID）定位到资料key
+ * - user:{googleId}:profile   用户对象（JSON）
+ * - user:{googleId}:version   资料版本号，用于ETag
+ * - user:id:{id}              Google ID
+ * - user:email:{email}        Google ID（邮箱统一小写）
+ */
+public final class UserCacheKeys {
+
+    private UserCacheKeys() {
+    }
+
+    public static String profile(String googleId) {
+        return "user:{" + googleId + "}:profile";
+    }
+
+    public static String version(String googleId) {
+        return "user:{" + googleId + "}:version";
+    }
+
+    public static String idIndex(Long id) {
+        return "user:id:" + id;
+    }
+
+    public static String emailIndex(String email) {
+        return "user:email:" + normalizeEmail(email);
+    }
+
+    /**
+     * users.email 按不区分大小写的排序规则比较，缓存中的邮箱索引和按邮箱匹配结果时统一转为小写
+     */
+    public static String normalizeEmail(String email) {
+        return email != null ? email.toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动时预热用户缓存
+ * 从 login_logs 中找出最近 lookback 时间内登录过的用户，按 batch-size 分批经 UserService.findByIds
+ * 加载（一次MGET + 一条IN查询 + 一次pipeline回填），把冷启动/扩容节点的首批请求挡在MySQL之外。
+ * ApplicationRunner 执行完之前 Spring Boot 不会发布 ReadinessState.ACCEPTING_TRAFFIC，
+ * 因此就绪状态在预热完成或耗尽 time-budget 之后才对外报告；超时后剩余批次放弃，不影响启动
+ */
+@Service
+@Slf4j
+public class UserCacheWarmer implements ApplicationRunner {
+
+    private final LoginLogService loginLogService;
+    private final UserService userService;
+    private final boolean enabled;
+    private final Duration lookback;
+    private final int maxUsers;
+    private final int batchSize;
+    private final Duration timeBudget;
+
+    public UserCacheWarmer(LoginLogService loginLogService,
+                           UserService userService,
+                           @Value("${user.warm-up.enabled:true}") boolean enabled,
+                           @Value("${user.warm-up.lookback:24h}") Duration lookback,
+                           @Value("${user.warm-up.max-users:5000}") int maxUsers,
+                           @Value("${user.warm-up.batch-size:200}") int batchSize,
+                           @Value("${user.warm-up.time-budget:10s}") Duration timeBudget) {
+        this.loginLogService = loginLogService;
+        this.userService = userService;
+        this.enabled = enabled;
+        this.lookback = lookback;
+        this.maxUsers = maxUsers;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || maxUsers <= 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger warmed = new AtomicInteger();
+
+        // 在独立线程中执行，数据库或Redis连接卡住时也能按预算返回
+        CompletableFuture<Void> task = CompletableFuture.runAsync(
+                () -> warmUp(deadline, cancelled, warmed), UserCacheWarmer::startDaemon);
+        try {
+            task.get(timeBudget.toNanos(), TimeUnit.NANOSECONDS);
+            log.info("User cache warm-up finished: {} users in {} ms", warmed.get(), elapsedMillis(start));
+        } catch (TimeoutException e) {
+            cancelled.set(true);
+            log.warn("User cache warm-up exceeded time budget {}, {} users warmed", timeBudget, warmed.get());
+        } catch (ExecutionException e) {
+            log.warn("User cache warm-up skipped after {} users: {}", warmed.get(), e.getCause().toString());
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void warmUp(long deadline, AtomicBoolean cancelled, AtomicInteger warmed) {
+        List<Long> userIds = loginLogService.getRecentlyActiveUserIds(LocalDateTime.now().minus(lookback), maxUsers);
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            if (cancelled.get() || System.nanoTime() - deadline >= 0) {
+                return;
+            }
+            List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            warmed.addAndGet(userService.findByIds(batch).size());
+        }
+    }
+
+    private static void startDaemon(Runnable runnable) {
+        Thread thread = new Thread(runnable, "user-cache-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.amorauth.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.dto.UserChangeEvent;
+import org.example.amorauth.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户变更事件发布
+ * 用户创建或更新提交后，向限长的Redis Stream追加一条紧凑事件（用户ID、版本号、变更字段），
+ * 下游服务可以用消费组订阅，或通过 offset 回放，从而精确失效自己的缓存而不必轮询
+ * 事件字段均为纯字符串，便于任意语言的消费者直接读取：
+ * userId, version, type(CREATED/UPDATED), changedFields(逗号分隔), timestamp(毫秒)
+ */
+@Service
+@Slf4j
+public class UserChangePublisher {
+
+    public static final String TYPE_CREATED = "CREATED";
+    public static final String TYPE_UPDATED = "UPDATED";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final String streamKey;
+    private final long maxLength;
+
+    public UserChangePublisher(StringRedisTemplate stringRedisTemplate,
+                               RedisCircuitBreaker redisCircuitBreaker,
+                               @Value("${user.change-stream.key:user:changes}") String streamKey,
+                               @Value("${user.change-stream.max-length:100000}") long maxLength) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.streamKey = streamKey;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 发布用户变更事件；存在事务时在事务提交后发布，回滚的变更不会被发布
+     */
+    public void publish(User user, String type, List<String> changedFields) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doPublish(user, type, changedFields);
+                }
+            });
+        } else {
+            doPublish(user, type, changedFields);
+        }
+    }
+
+    /**
+     * 读取指定offset之后的事件（不含该offset），offset为空时从最早的事件开始
+     */
+    public List<UserChangeEvent> readAfter(String offset, int count) {
+        Range<String> range = offset == null || offset.isBlank()
+                ? Range.unbounded()
+                : Range.rightUnbounded(Range.Bound.exclusive(offset));
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                .range(streamKey, range, Limit.limit().count(count));
+
+        List<UserChangeEvent> events = new ArrayList<>();
+        if (records == null) {
+            return events;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> fields = record.getValue();
+            UserChangeEvent event = new UserChangeEvent();
+            event.setOffset(record.getId().getValue());
+            event.setUserId(parseLong(fields.get("userId")));
+            event.setVersion(parseLong(fields.get("version")));
+            event.setType((String) fields.get("type"));
+            String changed = (String) fields.get("changedFields");
+            event.setChangedFields(changed == null || changed.isEmpty() ? List.of() : Arrays.asList(changed.split(",")));
+            event.setTimestamp(parseLong(fields.get("timestamp")));
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void doPublish(User user, String type, List<String> changedFields) {
+        // Redis熔断期间不等待超时，事件直接丢弃（与发布失败时相同）
+        if (!redisCircuitBreaker.isAvailable()) {
+            log.debug("Redis circuit open, skipped user change event for user {}", user.getId());
+            return;
+        }
+        try {
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("userId", String.valueOf(user.getId()));
+            fields.put("version", String.valueOf(user.getVersion() != null ? user.getVersion() : 0L));
+            fields.put("type", type);
+            fields.put("changedFields", String.join(",", changedFields));
+            fields.put("timestamp", String.valueOf(System.currentTimeMillis()));
+
+            stringRedisTemplate.opsForStream().add(MapRecord.create(streamKey, fields),
+                    XAddOptions.maxlen(maxLength).approximateTrimming(true));
+            log.debug("Published user change event: user={}, type={}, fields={}", user.getId(), type, changedFields);
+        } catch (Exception e) {
+            log.warn("Failed to publish user change event for user {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    private static Long parseLong(Object value) {
+        return value == null ? null : Long.valueOf(value.toString());
+    }
+}
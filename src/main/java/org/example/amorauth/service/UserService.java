@@ -1,28 +1,91 @@
 package org.example.amorauth.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.amorauth.dto.UserBatchLookupRequest;
+import org.example.amorauth.dto.UserBatchLookupResult;
 import org.example.amorauth.entity.User;
 import org.example.amorauth.mapper.UserMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
 
+    /**
+     * 用户缓存时间为1小时
+     */
+    private static final Duration CACHE_DURATION = Duration.ofHours(1);
+
+    private static final List<String> CREATED_FIELDS = List.of("googleId", "email", "name", "picture", "locale");
+
+    /**
+     * Redis恢复后补写缓存时每个pipeline包含的用户数
+     */
+    private static final int PENDING_WRITE_BATCH_SIZE = 200;
+
+    /**
+     * 登录时条件更新用户资料的最多尝试次数
+     */
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final UserMapper userMapper;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserChangePublisher userChangePublisher;
+    private final LoginMetrics loginMetrics;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final LocalUserCache localUserCache;
+
+    /**
+     * Redis不可用期间跳过的缓存写入，按用户ID合并只保留最新的用户，恢复后补写，
+     * 避免Redis中残留过期的用户资料直到TTL到期
+     */
+    private final Map<Long, User> pendingCacheWrites = new ConcurrentHashMap<>();
+
+    @Value("${user.batch-lookup.max-size:500}")
+    private int batchLookupMaxSize;
+
+    @Value("${user.pending-cache-writes.max-size:30000}")
+    private int maxPendingCacheWrites;
+
+    @Value("${datasource.routing.enabled:false}")
+    private boolean replicaRouting;
+
+    @PostConstruct
+    void registerRedisRecovery() {
+        redisCircuitBreaker.onRecovery(this::flushPendingCacheWrites);
+    }
 
     public User processOAuth2User(OAuth2User oauth2User) {
-        // 详细记录接收到的用户属性
-        log.info("Processing OAuth2User with attributes: {}", oauth2User.getAttributes());
-
         String googleId = oauth2User.getAttribute("sub");
         String email = oauth2User.getAttribute("email");
         String name = oauth2User.getAttribute("name");
@@ -31,102 +94,110 @@ public class UserService {
 
         // 验证必要的属性
         if (googleId == null || googleId.trim().isEmpty()) {
-            log.error("Google ID (sub) is null or empty. OAuth2User attributes: {}", oauth2User.getAttributes());
+            // 只记录属性名，属性值可能包含个人信息
+            log.error("Google ID (sub) is null or empty. OAuth2User attribute names: {}", oauth2User.getAttributes().keySet());
             throw new IllegalArgumentException("Google user ID (sub) cannot be null or empty");
         }
 
         if (email == null || email.trim().isEmpty()) {
-            log.error("Email is null or empty for Google ID: {}. OAuth2User attributes: {}", googleId, oauth2User.getAttributes());
+            log.error("Email is null or empty for Google ID: {}. OAuth2User attribute names: {}", googleId, oauth2User.getAttributes().keySet());
             throw new IllegalArgumentException("Google user email cannot be null or empty");
         }
 
-        log.info("Processing OAuth2 user: googleId={}, email={}, name={}", googleId, email, name);
-
-        // 首先尝试通过Google ID查找用户
-        User existingUser = userMapper.findByGoogleId(googleId);
-
-        if (existingUser != null) {
-            // 更新用户信息
-            existingUser.setName(name);
-            existingUser.setPicture(picture);
-            existingUser.setLocale(locale);
-            existingUser.setLastLoginAt(LocalDateTime.now());
-            existingUser.setUpdatedAt(LocalDateTime.now());
-            userMapper.updateUser(existingUser);
+        log.atDebug().setMessage("Processing OAuth2 user").addKeyValue("googleId", googleId).log();
+
+        // 数据库查找与写入计入 user_upsert 阶段，写库成功后才记录，之后的缓存写入单独计时
+        long upsertStart = System.nanoTime();
+        boolean upsertRecorded = false;
+        try {
+            // 首先尝试通过Google ID查找用户
+            User existingUser = userMapper.findByGoogleId(googleId);
+
+            if (existingUser == null) {
+                // 创建新用户
+                User newUser = new User();
+                newUser.setGoogleId(googleId);
+                newUser.setEmail(email);
+                newUser.setName(name != null ? name : email); // 如果name为空，使用email作为fallback
+                newUser.setPicture(picture);
+                newUser.setLocale(locale);
+                newUser.setCreatedAt(LocalDateTime.now());
+                newUser.setUpdatedAt(LocalDateTime.now());
+                newUser.setLastLoginAt(LocalDateTime.now());
+
+                try {
+                    userMapper.insertUser(newUser);
+                    newUser.setVersion(0L);
+                    loginMetrics.recordStage(LoginMetrics.STAGE_USER_UPSERT, upsertStart, true);
+                    upsertRecorded = true;
+
+                    // 缓存用户信息到Redis
+                    cacheUser(newUser);
+                    userChangePublisher.publish(newUser, UserChangePublisher.TYPE_CREATED, CREATED_FIELDS);
+
+                    log.atInfo().setMessage("Created new user").addKeyValue("userId", newUser.getId()).log();
+                    return newUser;
+                } catch (DuplicateKeyException e) {
+                    // 同一用户的并发首次登录，另一请求已经插入，改为更新该用户
+                    existingUser = userMapper.findByGoogleId(googleId);
+                    if (existingUser == null) {
+                        throw e;
+                    }
+                    log.atInfo().setMessage("Concurrent first login, updating user inserted by another request")
+                            .addKeyValue("userId", existingUser.getId()).log();
+                }
+            }
+
+            // 更新用户信息；users 表没有 last_login_at 列，变更字段只包含实际写入的资料字段
+            // 按读取时的版本号条件更新，其他节点并发更新过时重新读取，缓存与ETag使用的版本号与库中一致
+            List<String> changedFields;
+            int attempts = 0;
+            while (true) {
+                changedFields = changedProfileFields(existingUser, name, picture, locale);
+                existingUser.setName(name);
+                existingUser.setPicture(picture);
+                existingUser.setLocale(locale);
+                existingUser.setLastLoginAt(LocalDateTime.now());
+                existingUser.setUpdatedAt(LocalDateTime.now());
+                if (userMapper.updateUser(existingUser) > 0) {
+                    break;
+                }
+                if (++attempts >= MAX_UPDATE_ATTEMPTS) {
+                    throw new OptimisticLockingFailureException("User " + existingUser.getId()
+                            + " kept changing during login");
+                }
+                existingUser = userMapper.findByGoogleId(googleId);
+                if (existingUser == null) {
+                    throw new OptimisticLockingFailureException("User " + googleId + " was removed during login");
+                }
+            }
+            existingUser.setVersion(existingUser.getVersion() + 1);
+            loginMetrics.recordStage(LoginMetrics.STAGE_USER_UPSERT, upsertStart, true);
+            upsertRecorded = true;
 
             // 缓存用户信息到Redis
             cacheUser(existingUser);
+            userChangePublisher.publish(existingUser, UserChangePublisher.TYPE_UPDATED, changedFields);
 
-            log.info("Updated existing user: {}", existingUser.getId());
+            log.atInfo().setMessage("Updated existing user").addKeyValue("userId", existingUser.getId()).log();
             return existingUser;
-        } else {
-            // 创建新用户
-            User newUser = new User();
-            newUser.setGoogleId(googleId);
-            newUser.setEmail(email);
-            newUser.setName(name != null ? name : email); // 如果name为空，使用email作为fallback
-            newUser.setPicture(picture);
-            newUser.setLocale(locale);
-            newUser.setCreatedAt(LocalDateTime.now());
-            newUser.setUpdatedAt(LocalDateTime.now());
-            newUser.setLastLoginAt(LocalDateTime.now());
-
-            userMapper.insertUser(newUser);
-
-            // 缓存用户信息到Redis
-            cacheUser(newUser);
-
-            log.info("Created new user: {}", newUser.getId());
-            return newUser;
-        }
-    }
-
-    public User createOrUpdateUser(String googleId, String email, String name, String picture, String locale) {
-        log.info("Creating or updating user: googleId={}, email={}", googleId, email);
-
-        User existingUser = userMapper.findByGoogleId(googleId);
-
-        if (existingUser != null) {
-            // 更新现有用户
-            existingUser.setName(name);
-            existingUser.setPicture(picture);
-            existingUser.setLocale(locale);
-            existingUser.setUpdatedAt(LocalDateTime.now());
-            userMapper.updateUser(existingUser);
-
-            // 更新缓存
-            cacheUser(existingUser);
-
-            return existingUser;
-        } else {
-            // 创建新用户
-            User newUser = new User();
-            newUser.setGoogleId(googleId);
-            newUser.setEmail(email);
-            newUser.setName(name);
-            newUser.setPicture(picture);
-            newUser.setLocale(locale);
-            newUser.setCreatedAt(LocalDateTime.now());
-            newUser.setUpdatedAt(LocalDateTime.now());
-
-            userMapper.insertUser(newUser);
-
-            // 缓存新用户
-            cacheUser(newUser);
-
-            return newUser;
+        } finally {
+            if (!upsertRecorded) {
+                loginMetrics.recordStage(LoginMetrics.STAGE_USER_UPSERT, upsertStart, false);
+            }
         }
     }
 
     public User findByGoogleId(String googleId) {
         // 先从Redis缓存中查找
-        String cacheKey = "user:google:" + googleId;
-        User cachedUser = (User) redisTemplate.opsForValue().get(cacheKey);
+        User cachedUser = readCachedProfile(googleId);
 
         if (cachedUser != null) {
             log.debug("Found user in cache: {}", googleId);
+            loginMetrics.cacheHit(LoginMetrics.LOOKUP_GOOGLE_ID);
             return cachedUser;
         }
+        loginMetrics.cacheMiss(LoginMetrics.LOOKUP_GOOGLE_ID);
 
         // 缓存中没有，从数据库查找
         User user = userMapper.findByGoogleId(googleId);
@@ -139,13 +210,18 @@ public class UserService {
 
     public User findByEmail(String email) {
         // 先从Redis缓存中查找
-        String cacheKey = "user:email:" + email;
-        User cachedUser = (User) redisTemplate.opsForValue().get(cacheKey);
+        User cachedUser = readCachedByIndex(UserCacheKeys.emailIndex(email), () -> localUserCache.getByEmail(email));
+        if (cachedUser != null && !email.equalsIgnoreCase(cachedUser.getEmail())) {
+            // 索引指向的用户已更换邮箱，按未命中处理
+            cachedUser = null;
+        }
 
         if (cachedUser != null) {
             log.debug("Found user in cache by email: {}", email);
+            loginMetrics.cacheHit(LoginMetrics.LOOKUP_EMAIL);
             return cachedUser;
         }
+        loginMetrics.cacheMiss(LoginMetrics.LOOKUP_EMAIL);
 
         // 缓存中没有，从数据库查找
         User user = userMapper.findByEmail(email);
@@ -158,13 +234,14 @@ public class UserService {
 
     public User findById(Long id) {
         // 先从Redis缓存中查找
-        String cacheKey = "user:id:" + id;
-        User cachedUser = (User) redisTemplate.opsForValue().get(cacheKey);
+        User cachedUser = readCachedByIndex(UserCacheKeys.idIndex(id), () -> localUserCache.getById(id));
 
         if (cachedUser != null) {
             log.debug("Found user in cache by id: {}", id);
+            loginMetrics.cacheHit(LoginMetrics.LOOKUP_ID);
             return cachedUser;
         }
+        loginMetrics.cacheMiss(LoginMetrics.LOOKUP_ID);
 
         // 缓存中没有，从数据库查找
         User user = userMapper.findById(id);
@@ -175,26 +252,368 @@ public class UserService {
         return user;
     }
 
+    /**
+     * 批量按ID查找用户
+     */
+    public Map<Long, User> findByIds(Collection<Long> ids) {
+        return findUsers(ids, null, null).getById();
+    }
+
+    /**
+     * 对外的批量查询入口，标识总数超过 user.batch-lookup.max-size 时拒绝
+     */
+    public UserBatchLookupResult batchLookup(UserBatchLookupRequest request) {
+        int total = sizeOf(request.getIds()) + sizeOf(request.getGoogleIds()) + sizeOf(request.getEmails());
+        if (total > batchLookupMaxSize) {
+            throw new IllegalArgumentException("Batch lookup size " + total + " exceeds limit " + batchLookupMaxSize);
+        }
+        return findUsers(request.getIds(), request.getGoogleIds(), request.getEmails());
+    }
+
+    /**
+     * 批量查找用户
+     * ID和邮箱的索引key用一次MGET读取得到Google ID，所有用户资料再用一次MGET读取；
+     * 未命中的标识合并为一条 IN 查询，查到的用户再用一次pipeline回填缓存，往返次数与批量大小无关
+     */
+    public UserBatchLookupResult findUsers(Collection<Long> ids, Collection<String> googleIds, Collection<String> emails) {
+        Set<Long> distinctIds = distinct(ids);
+        Set<String> distinctGoogleIds = distinct(googleIds);
+        Set<String> distinctEmails = distinct(emails);
+
+        int total = distinctIds.size() + distinctGoogleIds.size() + distinctEmails.size();
+        UserBatchLookupResult result = new UserBatchLookupResult();
+        if (total == 0) {
+            return result;
+        }
+
+        redisCircuitBreaker.run(() -> readCachedUsers(distinctIds, distinctGoogleIds, distinctEmails, result),
+                () -> readLocalUsers(distinctIds, distinctGoogleIds, distinctEmails, result));
+
+        List<Long> missedIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (!result.getById().containsKey(id)) {
+                missedIds.add(id);
+            }
+        }
+        List<String> missedGoogleIds = new ArrayList<>();
+        for (String googleId : distinctGoogleIds) {
+            if (!result.getByGoogleId().containsKey(googleId)) {
+                missedGoogleIds.add(googleId);
+            }
+        }
+        List<String> missedEmails = new ArrayList<>();
+        for (String email : distinctEmails) {
+            if (!result.getByEmail().containsKey(email)) {
+                missedEmails.add(email);
+            }
+        }
+
+        int misses = missedIds.size() + missedGoogleIds.size() + missedEmails.size();
+        loginMetrics.cacheLookups(LoginMetrics.LOOKUP_BATCH, total - misses, misses);
+        if (misses > 0) {
+            List<User> loadedUsers = userMapper.findByKeys(missedIds, missedGoogleIds, missedEmails);
+            Set<Long> missedIdSet = new HashSet<>(missedIds);
+            Set<String> missedGoogleIdSet = new HashSet<>(missedGoogleIds);
+            // 数据库按不区分大小写的排序规则匹配邮箱，查到的用户按小写邮箱对应回请求中的写法
+            Map<String, List<String>> missedEmailsByNormalized = new HashMap<>();
+            for (String email : missedEmails) {
+                missedEmailsByNormalized.computeIfAbsent(UserCacheKeys.normalizeEmail(email), key -> new ArrayList<>(1))
+                        .add(email);
+            }
+            for (User user : loadedUsers) {
+                if (missedIdSet.contains(user.getId())) {
+                    result.getById().put(user.getId(), user);
+                }
+                if (missedGoogleIdSet.contains(user.getGoogleId())) {
+                    result.getByGoogleId().put(user.getGoogleId(), user);
+                }
+                for (String email : missedEmailsByNormalized.getOrDefault(
+                        UserCacheKeys.normalizeEmail(user.getEmail()), List.of())) {
+                    result.getByEmail().put(email, user);
+                }
+            }
+            cacheUsers(loadedUsers);
+        }
+
+        log.debug("Batch user lookup: {} keys, {} cache misses", total, misses);
+        return result;
+    }
+
+    private void readCachedUsers(Set<Long> ids, Set<String> googleIds, Set<String> emails, UserBatchLookupResult result) {
+        List<String> indexKeys = new ArrayList<>(ids.size() + emails.size());
+        for (Long id : ids) {
+            indexKeys.add(UserCacheKeys.idIndex(id));
+        }
+        for (String email : emails) {
+            indexKeys.add(UserCacheKeys.emailIndex(email));
+        }
+        List<String> indexed = indexKeys.isEmpty() ? List.of() : stringRedisTemplate.opsForValue().multiGet(indexKeys);
+
+        Set<String> profileGoogleIds = new LinkedHashSet<>(googleIds);
+        if (indexed != null) {
+            for (String googleId : indexed) {
+                if (googleId != null) {
+                    profileGoogleIds.add(googleId);
+                }
+            }
+        }
+        if (profileGoogleIds.isEmpty()) {
+            return;
+        }
+        List<String> profileKeys = profileGoogleIds.stream().map(UserCacheKeys::profile).toList();
+        List<Object> profiles = redisTemplate.opsForValue().multiGet(profileKeys);
+        if (profiles == null) {
+            return;
+        }
+        Map<String, User> profileByGoogleId = new HashMap<>();
+        for (Object profile : profiles) {
+            if (profile instanceof User user) {
+                profileByGoogleId.put(user.getGoogleId(), user);
+            }
+        }
+
+        for (String googleId : googleIds) {
+            User user = profileByGoogleId.get(googleId);
+            if (user != null) {
+                result.getByGoogleId().put(googleId, user);
+            }
+        }
+        // 索引可能比资料旧（用户更换了邮箱），以资料中的值为准
+        int index = 0;
+        for (Long id : ids) {
+            User user = indexed != null && indexed.get(index) != null ? profileByGoogleId.get(indexed.get(index)) : null;
+            if (user != null && id.equals(user.getId())) {
+                result.getById().put(id, user);
+            }
+            index++;
+        }
+        for (String email : emails) {
+            User user = indexed != null && indexed.get(index) != null ? profileByGoogleId.get(indexed.get(index)) : null;
+            if (user != null && email.equalsIgnoreCase(user.getEmail())) {
+                result.getByEmail().put(email, user);
+            }
+            index++;
+        }
+    }
+
+    private void readLocalUsers(Set<Long> ids, Set<String> googleIds, Set<String> emails, UserBatchLookupResult result) {
+        for (Long id : ids) {
+            User user = localUserCache.getById(id);
+            if (user != null) {
+                result.getById().put(id, user);
+            }
+        }
+        for (String googleId : googleIds) {
+            User user = localUserCache.getByGoogleId(googleId);
+            if (user != null) {
+                result.getByGoogleId().put(googleId, user);
+            }
+        }
+        for (String email : emails) {
+            User user = localUserCache.getByEmail(email);
+            if (user != null) {
+                result.getByEmail().put(email, user);
+            }
+        }
+    }
+
+    /**
+     * 获取用户资料的ETag
+     * 只读取Redis中单独缓存的版本号（一个很小的字符串），不反序列化完整的用户对象；
+     * 版本号缓存缺失时才加载用户
+     *
+     * @return 用户不存在时返回 null
+     */
+    public String getProfileETag(String googleId) {
+        // Redis不可用时直接按用户计算（本地缓存或数据库）
+        String version = redisCircuitBreaker.call(
+                () -> stringRedisTemplate.opsForValue().get(UserCacheKeys.version(googleId)), () -> null);
+        if (version != null) {
+            loginMetrics.cacheHit(LoginMetrics.LOOKUP_VERSION);
+        } else {
+            loginMetrics.cacheMiss(LoginMetrics.LOOKUP_VERSION);
+            User user = findByGoogleId(googleId);
+            if (user == null) {
+                return null;
+            }
+            version = versionOf(user);
+        }
+        return profileETag(googleId, version);
+    }
+
+    /**
+     * ETag由Google ID的哈希和资料版本号组成，阻塞与非阻塞读取路径共用
+     */
+    static String profileETag(String googleId, String version) {
+        return "\"" + Integer.toHexString(googleId.hashCode()) + "-" + version + "\"";
+    }
+
+    static String versionOf(User user) {
+        return String.valueOf(user.getVersion() != null ? user.getVersion() : 0L);
+    }
+
+    private List<String> changedProfileFields(User user, String name, String picture, String locale) {
+        List<String> changedFields = new ArrayList<>(4);
+        if (!Objects.equals(user.getName(), name)) {
+            changedFields.add("name");
+        }
+        if (!Objects.equals(user.getPicture(), picture)) {
+            changedFields.add("picture");
+        }
+        if (!Objects.equals(user.getLocale(), locale)) {
+            changedFields.add("locale");
+        }
+        return changedFields;
+    }
+
+    /**
+     * 读取Redis缓存，熔断打开或读取失败时改读本地缓存
+     */
+    private User readCachedProfile(String googleId) {
+        return redisCircuitBreaker.call(() -> (User) redisTemplate.opsForValue().get(UserCacheKeys.profile(googleId)),
+                () -> localUserCache.getByGoogleId(googleId));
+    }
+
+    /**
+     * 先读索引key得到Google ID，再读取用户资料
+     */
+    private User readCachedByIndex(String indexKey, Supplier<User> localFallback) {
+        return redisCircuitBreaker.call(() -> {
+            String googleId = stringRedisTemplate.opsForValue().get(indexKey);
+            return googleId != null ? (User) redisTemplate.opsForValue().get(UserCacheKeys.profile(googleId)) : null;
+        }, localFallback);
+    }
+
     private void cacheUser(User user) {
         if (user == null) return;
 
-        // 设置缓存时间为1小时
-        Duration cacheDuration = Duration.ofHours(1);
+        cacheUsers(List.of(user));
+    }
+
+    /**
+     * 用一次pipeline写入所有用户的缓存key，批量回填和单个用户缓存都只需一次往返
+     * 同时写入本地缓存；Redis不可用时不等待，改为记入待补写队列
+     */
+    private void cacheUsers(List<User> users) {
+        if (users.isEmpty() || readsFromReplica()) {
+            return;
+        }
+        users.forEach(localUserCache::put);
+
+        long start = System.nanoTime();
+        redisCircuitBreaker.run(() -> {
+            writeCache(users);
+            loginMetrics.recordStage(LoginMetrics.STAGE_CACHE_WRITE, start, true);
+            log.debug("Cached {} users", users.size());
+        }, () -> {
+            loginMetrics.recordStage(LoginMetrics.STAGE_CACHE_WRITE, start, false);
+            deferCacheWrites(users);
+        });
+    }
+
+    /**
+     * 开启读写分离时只读事务中的查询可能读自有延迟的副本，查到的用户不回填共享的Redis和本地缓存，
+     * 避免旧数据在TTL内被所有走主库的读取看到
+     */
+    private boolean readsFromReplica() {
+        return replicaRouting && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void deferCacheWrites(List<User> users) {
+        for (User user : users) {
+            if (pendingCacheWrites.size() >= maxPendingCacheWrites && !pendingCacheWrites.containsKey(user.getId())) {
+                log.warn("Pending cache writes full ({}), cached user {} may stay stale until expiry",
+                        maxPendingCacheWrites, user.getId());
+                continue;
+            }
+            pendingCacheWrites.put(user.getId(), user);
+        }
+    }
+
+    /**
+     * Redis恢复后分批补写跳过的缓存；补写期间同一用户又有新的写入时以新的为准，不会被旧数据覆盖
+     */
+    private void flushPendingCacheWrites() {
+        if (pendingCacheWrites.isEmpty()) {
+            return;
+        }
+        List<User> batch = new ArrayList<>(PENDING_WRITE_BATCH_SIZE);
+        int flushed = 0;
+        for (User user : pendingCacheWrites.values()) {
+            batch.add(user);
+            if (batch.size() == PENDING_WRITE_BATCH_SIZE) {
+                flushed += flushPendingBatch(batch);
+                batch = new ArrayList<>(PENDING_WRITE_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushed += flushPendingBatch(batch);
+        }
+        log.info("Flushed {} deferred user cache writes after Redis recovery", flushed);
+    }
+
+    private int flushPendingBatch(List<User> batch) {
+        return redisCircuitBreaker.call(() -> {
+            writeCache(batch);
+            for (User user : batch) {
+                pendingCacheWrites.remove(user.getId(), user);
+            }
+            return batch.size();
+        }, () -> 0);
+    }
 
-        // 按不同的key缓存用户信息
-        redisTemplate.opsForValue().set("user:id:" + user.getId(), user, cacheDuration);
-        redisTemplate.opsForValue().set("user:google:" + user.getGoogleId(), user, cacheDuration);
-        redisTemplate.opsForValue().set("user:email:" + user.getEmail(), user, cacheDuration);
+    @SuppressWarnings("unchecked")
+    private void writeCache(List<User> users) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration expiration = Expiration.from(CACHE_DURATION);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (User user : users) {
+                // 资料只写一份，ID和邮箱索引只保存Google ID
+                byte[] googleId = rawKey(user.getGoogleId());
+                connection.stringCommands().set(rawKey(UserCacheKeys.profile(user.getGoogleId())),
+                        valueSerializer.serialize(user), expiration, SetOption.upsert());
+                connection.stringCommands().set(rawKey(UserCacheKeys.version(user.getGoogleId())),
+                        rawKey(versionOf(user)), expiration, SetOption.upsert());
+                connection.stringCommands().set(rawKey(UserCacheKeys.idIndex(user.getId())), googleId, expiration, SetOption.upsert());
+                connection.stringCommands().set(rawKey(UserCacheKeys.emailIndex(user.getEmail())), googleId, expiration, SetOption.upsert());
+            }
+            return null;
+        });
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
 
-        log.debug("Cached user: {}", user.getId());
+    private static int sizeOf(Collection<?> values) {
+        return values != null ? values.size() : 0;
+    }
+
+    private static <T> Set<T> distinct(Collection<T> values) {
+        Set<T> result = new LinkedHashSet<>();
+        if (values != null) {
+            for (T value : values) {
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+        }
+        return result;
     }
 
     public void clearUserCache(User user) {
         if (user == null) return;
 
-        redisTemplate.delete("user:id:" + user.getId());
-        redisTemplate.delete("user:google:" + user.getGoogleId());
-        redisTemplate.delete("user:email:" + user.getEmail());
+        localUserCache.evict(user);
+        pendingCacheWrites.remove(user.getId());
+        // Redis不可用时删除失败，缓存最迟在TTL到期后失效；集群模式下按slot拆分，资料和版本号在同一条DEL中
+        redisCircuitBreaker.run(() -> redisTemplate.delete(List.of(
+                UserCacheKeys.profile(user.getGoogleId()),
+                UserCacheKeys.version(user.getGoogleId()),
+                UserCacheKeys.idIndex(user.getId()),
+                UserCacheKeys.emailIndex(user.getEmail()))), () -> {
+        });
 
         log.debug("Cleared cache for user: {}", user.getId());
     }
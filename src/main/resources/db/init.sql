@@ -13,18 +13,27 @@ CREATE TABLE IF NOT EXISTS users (
     locale VARCHAR(10) COMMENT '语言偏好',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    version BIGINT NOT NULL DEFAULT 0 COMMENT '资料版本号，每次更新加1',
     INDEX idx_google_id (google_id),
     INDEX idx_email (email),
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户表';
 
+-- 创建User-Agent字典表
+CREATE TABLE IF NOT EXISTS user_agents (
+    id INT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT 'User-Agent ID',
+    ua_hash BINARY(32) NOT NULL UNIQUE COMMENT 'User-Agent的SHA-256摘要',
+    user_agent VARCHAR(512) NOT NULL COMMENT '用户代理（截断到512个字符）',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='User-Agent字典表';
+
 -- 创建登录日志表
 CREATE TABLE IF NOT EXISTS login_logs (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '日志ID',
-    user_id BIGINT NOT NULL COMMENT '用户ID',
+    user_id BIGINT COMMENT '用户ID（登录失败且无法识别用户时为空）',
     login_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '登录时间',
-    ip_address VARCHAR(45) COMMENT 'IP地址',
-    user_agent TEXT COMMENT '用户代理',
+    ip_address VARBINARY(16) COMMENT 'IP地址（IPv4为4字节，IPv6为16字节）',
+    user_agent_id INT UNSIGNED COMMENT '用户代理ID（user_agents.id）',
     login_type VARCHAR(20) DEFAULT 'GOOGLE_OAUTH2' COMMENT '登录类型',
     success BOOLEAN DEFAULT TRUE COMMENT '是否成功',
     error_message TEXT COMMENT '错误信息',
@@ -33,6 +42,19 @@ CREATE TABLE IF NOT EXISTS login_logs (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='登录日志表';
 
+-- 创建登录失败聚合统计表
+CREATE TABLE IF NOT EXISTS login_failure_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '统计ID',
+    window_start TIMESTAMP NOT NULL COMMENT '统计周期开始时间',
+    window_end TIMESTAMP NOT NULL COMMENT '统计周期结束时间',
+    ip_address VARBINARY(16) COMMENT 'IP地址（IPv4为4字节，IPv6为16字节）',
+    error_type VARCHAR(100) NOT NULL COMMENT '错误类型',
+    failure_count BIGINT NOT NULL COMMENT '失败次数',
+    sampled_count BIGINT NOT NULL COMMENT '写入login_logs的采样条数',
+    INDEX idx_window_start (window_start),
+    INDEX idx_ip_address (ip_address)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='登录失败聚合统计表';
+
 -- 创建会话表
 CREATE TABLE IF NOT EXISTS user_sessions (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '会话ID',
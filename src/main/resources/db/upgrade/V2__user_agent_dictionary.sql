@@ -0,0 +1,26 @@
+-- 登录日志User-Agent字典编码升级脚本
+-- 适用于已按旧版 init.sql 建表（login_logs.user_agent 为 TEXT）的数据库
+
+USE amor_auth;
+
+CREATE TABLE IF NOT EXISTS user_agents (
+    id INT UNSIGNED AUTO_INCREMENT PRIMARY KEY COMMENT 'User-Agent ID',
+    ua_hash BINARY(32) NOT NULL UNIQUE COMMENT 'User-Agent的SHA-256摘要',
+    user_agent TEXT NOT NULL COMMENT '用户代理',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='User-Agent字典表';
+
+-- 将已有的User-Agent导入字典表
+INSERT IGNORE INTO user_agents (ua_hash, user_agent)
+SELECT DISTINCT UNHEX(SHA2(user_agent, 256)), user_agent
+FROM login_logs
+WHERE user_agent IS NOT NULL;
+
+ALTER TABLE login_logs ADD COLUMN user_agent_id INT UNSIGNED COMMENT '用户代理ID（user_agents.id）' AFTER ip_address;
+
+UPDATE login_logs ll
+JOIN user_agents ua ON ua.ua_hash = UNHEX(SHA2(ll.user_agent, 256))
+SET ll.user_agent_id = ua.id
+WHERE ll.user_agent IS NOT NULL;
+
+ALTER TABLE login_logs DROP COLUMN user_agent;
@@ -0,0 +1,12 @@
+-- 登录日志IP地址二进制存储升级脚本
+-- 将 login_logs.ip_address 从 VARCHAR(45) 转换为 VARBINARY(16)
+
+USE amor_auth;
+
+ALTER TABLE login_logs ADD COLUMN ip_address_bin VARBINARY(16) COMMENT 'IP地址（IPv4为4字节，IPv6为16字节）' AFTER ip_address;
+
+-- INET6_ATON 对IPv4返回4字节、对IPv6返回16字节，无法解析的值为NULL
+UPDATE login_logs SET ip_address_bin = INET6_ATON(ip_address) WHERE ip_address IS NOT NULL;
+
+ALTER TABLE login_logs DROP COLUMN ip_address;
+ALTER TABLE login_logs RENAME COLUMN ip_address_bin TO ip_address;
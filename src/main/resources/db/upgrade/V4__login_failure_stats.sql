@@ -0,0 +1,18 @@
+-- 登录失败聚合记录升级脚本
+
+USE amor_auth;
+
+-- 登录失败时可能无法识别用户
+ALTER TABLE login_logs MODIFY COLUMN user_id BIGINT COMMENT '用户ID（登录失败且无法识别用户时为空）';
+
+CREATE TABLE IF NOT EXISTS login_failure_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '统计ID',
+    window_start TIMESTAMP NOT NULL COMMENT '统计周期开始时间',
+    window_end TIMESTAMP NOT NULL COMMENT '统计周期结束时间',
+    ip_address VARBINARY(16) COMMENT 'IP地址（IPv4为4字节，IPv6为16字节）',
+    error_type VARCHAR(100) NOT NULL COMMENT '错误类型',
+    failure_count BIGINT NOT NULL COMMENT '失败次数',
+    sampled_count BIGINT NOT NULL COMMENT '写入login_logs的采样条数',
+    INDEX idx_window_start (window_start),
+    INDEX idx_ip_address (ip_address)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='登录失败聚合统计表';
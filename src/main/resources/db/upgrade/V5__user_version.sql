@@ -0,0 +1,5 @@
+-- 用户资料版本号升级脚本（用于ETag条件请求）
+
+USE amor_auth;
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0 COMMENT '资料版本号，每次更新加1' AFTER updated_at;
@@ -0,0 +1,9 @@
+-- User-Agent字典列长度上限升级脚本
+-- User-Agent由客户端任意填写，应用写入前截断到512个字符；已有的超长记录先截断再改列类型。
+-- 截断后的记录摘要不再与内容对应，只被历史日志引用，同样的User-Agent再次出现时按截断后的内容新建记录
+
+USE amor_auth;
+
+UPDATE user_agents SET user_agent = LEFT(user_agent, 512) WHERE CHAR_LENGTH(user_agent) > 512;
+
+ALTER TABLE user_agents MODIFY COLUMN user_agent VARCHAR(512) NOT NULL COMMENT '用户代理（截断到512个字符）';
@@ -3,7 +3,9 @@ package org.example.amorauth;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// 测试环境没有MySQL，关闭启动预热以免等待连接超时；单进程测试使用随机的授权请求Cookie密钥
+@SpringBootTest(properties = {"user.warm-up.enabled=false",
+        "oauth2.authorization-request-cookie.allow-ephemeral-key=true"})
 class AmorAuthApplicationTests {
 
     @Test
@@ -0,0 +1,112 @@
+package org.example.amorauth.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.amorauth.common.constant.HttpStatus;
+import org.example.amorauth.common.domain.R;
+import org.example.amorauth.config.AuthResponseWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 安全处理器响应写出的微基准
+ * legacy* 为原先的写法（字符串拼接 / 每次用私有ObjectMapper序列化R），
+ * 其余为 AuthResponseWriter 的预编码与共享ObjectMapper写法；
+ * 通过 main 方法运行时会附带 GC profiler，对比 gc.alloc.rate.norm（每次操作分配的字节数）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthResponseBenchmark {
+
+    private ObjectMapper legacyObjectMapper;
+    private AuthResponseWriter authResponseWriter;
+    private AuthenticationException exception;
+
+    @Setup
+    public void setup() throws Exception {
+        legacyObjectMapper = new ObjectMapper();
+        authResponseWriter = new AuthResponseWriter(new ObjectMapper());
+        exception = new BadCredentialsException("[invalid_token_response] \"state\" mismatch");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyLoginSuccess() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(200);
+        response.getWriter().write("{\"success\":true,\"message\":\"登录成功\",\"redirectUrl\":\"/dashboard\"}");
+        response.getWriter().flush();
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse loginSuccess() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        authResponseWriter.writeLoginSuccess(response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyLoginFailure() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(401);
+        response.getWriter().write("{\"success\":false,\"message\":\"登录失败\",\"error\":\"" + exception.getMessage() + "\"}");
+        response.getWriter().flush();
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse loginFailure() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        authResponseWriter.writeLoginFailure(response, exception);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyUnauthorized() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(401);
+        response.setContentType("application/json;charset=UTF-8");
+        legacyObjectMapper.writeValue(response.getWriter(), R.fail(HttpStatus.UNAUTHORIZED, "未授权访问"));
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse unauthorized() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        authResponseWriter.writeUnauthorized(response);
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AuthResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.amorauth.benchmark;
+
+import org.example.amorauth.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * 基准测试共用的样例数据
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user(long id) {
+        LocalDateTime now = LocalDateTime.of(2025, 9, 19, 17, 27, 0);
+        User user = new User();
+        user.setId(id);
+        user.setGoogleId("10" + (769150350006150715L + id));
+        user.setEmail("user" + id + "@example.com");
+        user.setName("Benchmark User " + id);
+        user.setPicture("https://lh3.googleusercontent.com/a/ACg8ocK" + id + "=s96-c");
+        user.setLocale("zh-CN");
+        user.setCreatedAt(now.minusDays(30));
+        user.setUpdatedAt(now);
+        user.setLastLoginAt(now);
+        user.setVersion(3L);
+        return user;
+    }
+}
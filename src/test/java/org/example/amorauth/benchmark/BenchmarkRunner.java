@@ -0,0 +1,41 @@
+package org.example.amorauth.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部JMH基准并输出JSON结果，便于在版本之间对比回归
+ * mvn -Pbenchmark verify 会调用本类，结果写入 target/jmh-result.json；
+ * 也可以直接传入JMH命令行参数，例如只运行某个基准：UserCacheBenchmark -rff target/user-cache.json
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_INCLUDE = BenchmarkRunner.class.getPackageName() + "\\..*Benchmark";
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+    /**
+     * fork进程默认输出DEBUG日志（Lettuce、UserService等），会严重干扰测量
+     */
+    private static final String LOGGING_CONFIG = "-Dlogback.configurationFile=logback-benchmark.xml";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(LOGGING_CONFIG);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(DEFAULT_INCLUDE);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        new Runner(builder.build()).run();
+    }
+}
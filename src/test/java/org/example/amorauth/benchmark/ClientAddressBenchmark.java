@@ -0,0 +1,71 @@
+package org.example.amorauth.benchmark;
+
+import org.example.amorauth.service.ClientAddressResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端IP解析（原 LoginLogService.getClientIpAddress，现为 ClientAddressResolver）的耗时
+ * 每次调用前清除请求属性中的缓存结果，测量的是完整的头解析过程
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientAddressBenchmark {
+
+    private ClientAddressResolver resolver;
+    private MockHttpServletRequest direct;
+    private MockHttpServletRequest proxied;
+    private MockHttpServletRequest proxiedIpv6;
+
+    @Setup
+    public void setup() {
+        resolver = new ClientAddressResolver(List.of("127.0.0.0/8", "::1/128", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16"));
+
+        direct = new MockHttpServletRequest();
+        direct.setRemoteAddr("203.0.113.7");
+
+        proxied = new MockHttpServletRequest();
+        proxied.setRemoteAddr("10.0.0.5");
+        proxied.addHeader("X-Forwarded-For", "198.51.100.23, 172.16.4.2, 10.0.0.8");
+
+        proxiedIpv6 = new MockHttpServletRequest();
+        proxiedIpv6.setRemoteAddr("::1");
+        proxiedIpv6.addHeader("X-Forwarded-For", "2001:DB8:0:0:0:0:0:1, 10.0.0.8");
+    }
+
+    @Benchmark
+    public String directClient() {
+        return resolve(direct);
+    }
+
+    @Benchmark
+    public String forwardedChain() {
+        return resolve(proxied);
+    }
+
+    @Benchmark
+    public String forwardedIpv6() {
+        return resolve(proxiedIpv6);
+    }
+
+    private String resolve(MockHttpServletRequest request) {
+        request.removeAttribute(ClientAddressResolver.CLIENT_ADDRESS_ATTRIBUTE);
+        return resolver.resolve(request);
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.amorauth.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基准测试用的进程内Redis替身
+ * 只实现RESP2协议和用户缓存、登录路径用到的少量命令（GET/SET/MGET/DEL等，过期参数被忽略；
+ * XADD只生成ID不保存内容；EVAL等其他命令返回错误，由调用方走降级逻辑），
+ * 让Lettuce客户端、序列化和pipeline走真实的网络往返，但不依赖外部Redis；
+ * HELLO返回未知命令错误，客户端会回退到RESP2；
+ * 可指定固定的响应延迟模拟慢Redis：命令立即执行，响应延迟后按顺序写回，同一连接上的后续命令不受阻塞
+ */
+public class InProcessRedisServer implements AutoCloseable {
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PONG = "+PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * key按ISO-8859-1转成字符串，字节与字符一一对应，不会丢失信息
+     */
+    private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+    private final ServerSocket serverSocket;
+    private final AtomicLong streamSequence = new AtomicLong();
+    private final long latencyMillis;
+    private volatile boolean running = true;
+
+    public InProcessRedisServer() throws IOException {
+        this(0);
+    }
+
+    public InProcessRedisServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "in-process-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread handler = new Thread(() -> handle(socket), "in-process-redis-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (running) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        if (latencyMillis > 0) {
+            handleDelayed(socket);
+            return;
+        }
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            while (running) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                execute(command, out);
+                // pipeline中的后续命令已到达时继续处理，最后一起刷出
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开
+        }
+    }
+
+    /**
+     * 每个响应在命令到达 latencyMillis 之后写回；延迟相同，调度器按提交顺序执行，响应顺序与命令顺序一致
+     */
+    private void handleDelayed(Socket socket) {
+        ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "in-process-redis-responder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream())) {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (running) {
+                List<byte[]> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                execute(command, response);
+                responder.schedule(() -> {
+                    try {
+                        response.writeTo(out);
+                        out.flush();
+                    } catch (IOException e) {
+                        // 客户端断开
+                    }
+                }, latencyMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            // 客户端断开
+        } finally {
+            responder.shutdownNow();
+        }
+    }
+
+    private void execute(List<byte[]> command, OutputStream out) throws IOException {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING" -> out.write(PONG);
+            case "CLIENT", "SELECT", "FLUSHDB", "FLUSHALL" -> {
+                if (name.startsWith("FLUSH")) {
+                    data.clear();
+                }
+                out.write(OK);
+            }
+            case "GET" -> writeBulk(out, data.get(key(command.get(1))));
+            case "SET" -> {
+                // 只支持NX选项，过期时间忽略
+                boolean ifAbsent = command.stream().skip(3)
+                        .anyMatch(option -> "NX".equalsIgnoreCase(new String(option, StandardCharsets.US_ASCII)));
+                if (ifAbsent) {
+                    if (data.putIfAbsent(key(command.get(1)), command.get(2)) == null) {
+                        out.write(OK);
+                    } else {
+                        writeBulk(out, null);
+                    }
+                } else {
+                    data.put(key(command.get(1)), command.get(2));
+                    out.write(OK);
+                }
+            }
+            case "MGET" -> {
+                writeHeader(out, '*', command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    writeBulk(out, data.get(key(command.get(i))));
+                }
+            }
+            case "DEL", "EXISTS" -> {
+                int count = 0;
+                for (int i = 1; i < command.size(); i++) {
+                    boolean present = "DEL".equals(name)
+                            ? data.remove(key(command.get(i))) != null
+                            : data.containsKey(key(command.get(i)));
+                    if (present) {
+                        count++;
+                    }
+                }
+                writeHeader(out, ':', count);
+            }
+            case "XADD" -> writeBulk(out, (System.currentTimeMillis() + "-" + streamSequence.incrementAndGet())
+                    .getBytes(StandardCharsets.US_ASCII));
+            default -> out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("Unsupported request type: " + (char) type);
+        }
+        int count = (int) readLong(in);
+        List<byte[]> arguments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("Expected bulk string");
+            }
+            int length = (int) readLong(in);
+            byte[] argument = in.readNBytes(length);
+            if (argument.length != length) {
+                throw new EOFException();
+            }
+            in.skipNBytes(2);
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NULL_BULK);
+            return;
+        }
+        writeHeader(out, '$', value.length);
+        out.write(value);
+        out.write(CRLF);
+    }
+
+    private static void writeHeader(OutputStream out, char type, long value) throws IOException {
+        out.write(type);
+        out.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static String key(byte[] key) {
+        return new String(key, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.amorauth.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import org.example.amorauth.common.logging.RedactingJsonMembersCustomizer;
+import org.example.amorauth.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次登录在业务线程上产生的日志开销
+ * legacy：原有日志语句（属性逐条输出、邮箱明文）+ application.yaml 的DEBUG/TRACE级别 + 同步控制台输出；
+ * production：现有日志语句 + application-prod.yaml 的级别 + logback-production.xml（限流、异步、JSON脱敏）。
+ * 控制台输出重定向到空流，测量的是格式化/编码和入队的成本而不是终端写入
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LoggingOverheadBenchmark {
+
+    @Param({"legacy", "production"})
+    public String profile;
+
+    private PrintStream originalOut;
+    private LoggerContext loggerContext;
+
+    private Logger httpClientConfigLog;
+    private Logger userServiceLog;
+    private Logger loginLogServiceLog;
+    private Logger securityConfigLog;
+    private Logger oauth2ClientLog;
+    private Logger restTemplateLog;
+
+    private User user;
+    private Map<String, Object> attributes;
+
+    @Setup
+    public void setup() throws Exception {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "spring.application.name", "amor-auth",
+                "logging.structured.json.customizer", RedactingJsonMembersCustomizer.class.getName())));
+        loggerContext.putObject(Environment.class.getName(), environment);
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        configurator.doConfigure(getClass().getClassLoader().getResource("logback-benchmark-" + profile + ".xml"));
+
+        httpClientConfigLog = LoggerFactory.getLogger("org.example.amorauth.config.OAuth2HttpClientConfig");
+        userServiceLog = LoggerFactory.getLogger("org.example.amorauth.service.UserService");
+        loginLogServiceLog = LoggerFactory.getLogger("org.example.amorauth.service.LoginLogService");
+        securityConfigLog = LoggerFactory.getLogger("org.example.amorauth.config.SecurityConfig");
+        oauth2ClientLog = LoggerFactory.getLogger("org.springframework.security.oauth2.client.web.OAuth2LoginAuthenticationFilter");
+        restTemplateLog = LoggerFactory.getLogger("org.springframework.web.client.RestTemplate");
+
+        user = BenchmarkFixtures.user(42);
+        attributes = new LinkedHashMap<>();
+        attributes.put("sub", user.getGoogleId());
+        attributes.put("name", user.getName());
+        attributes.put("given_name", "Benchmark");
+        attributes.put("family_name", "User");
+        attributes.put("picture", user.getPicture());
+        attributes.put("email", user.getEmail());
+        attributes.put("email_verified", true);
+        attributes.put("locale", user.getLocale());
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void login() {
+        if ("legacy".equals(profile)) {
+            legacyLogin();
+        } else {
+            productionLogin();
+        }
+    }
+
+    private void legacyLogin() {
+        oauth2ClientLog.trace("Retrieving access token for registration: {}", "google");
+        restTemplateLog.debug("HTTP POST {}", "https://oauth2.googleapis.com/token");
+        restTemplateLog.debug("Writing [{}] as \"application/x-www-form-urlencoded\"", "{grant_type=[authorization_code], code=[4/0AVMBsJh...]}");
+        restTemplateLog.debug("Response {}", "200 OK");
+        httpClientConfigLog.info("Processing OAuth2 user request for client: {} with proxy", "amor-auth-client-id.apps.googleusercontent.com");
+        httpClientConfigLog.info("UserInfo URI: {}", "https://openidconnect.googleapis.com/v1/userinfo");
+        restTemplateLog.debug("HTTP GET {}", "https://openidconnect.googleapis.com/v1/userinfo");
+        restTemplateLog.debug("Response {}", "200 OK");
+        httpClientConfigLog.info("OAuth2User attributes received:");
+        attributes.forEach((key, value) -> httpClientConfigLog.info("  {} = {}", key, value));
+        userServiceLog.info("Processing OAuth2User with attributes: {}", attributes);
+        userServiceLog.info("Processing OAuth2 user: googleId={}, email={}, name={}", user.getGoogleId(), user.getEmail(), user.getName());
+        userServiceLog.info("Creating or updating user: googleId={}, email={}", user.getGoogleId(), user.getEmail());
+        userServiceLog.info("Updated existing user: {}", user.getId());
+        loginLogServiceLog.info("Login log recorded for user: {} ({}), Success: {}", user.getEmail(), user.getId(), true);
+        securityConfigLog.info("OAuth2 login success for user: {}", user.getGoogleId());
+        oauth2ClientLog.debug("Set SecurityContextHolder to {}", "OAuth2AuthenticationToken [Principal=Name: [" + user.getGoogleId() + "]]");
+    }
+
+    private void productionLogin() {
+        oauth2ClientLog.trace("Retrieving access token for registration: {}", "google");
+        restTemplateLog.debug("HTTP POST {}", "https://oauth2.googleapis.com/token");
+        restTemplateLog.debug("Response {}", "200 OK");
+        restTemplateLog.debug("HTTP GET {}", "https://openidconnect.googleapis.com/v1/userinfo");
+        restTemplateLog.debug("Response {}", "200 OK");
+        httpClientConfigLog.atDebug().setMessage("Loaded OAuth2 user")
+                .addKeyValue("registrationId", "google")
+                .addKeyValue("attributeCount", attributes.size())
+                .log();
+        userServiceLog.atDebug().setMessage("Processing OAuth2 user").addKeyValue("googleId", user.getGoogleId()).log();
+        userServiceLog.atInfo().setMessage("Creating or updating user").addKeyValue("googleId", user.getGoogleId()).log();
+        userServiceLog.atInfo().setMessage("Updated existing user").addKeyValue("userId", user.getId()).log();
+        loginLogServiceLog.atInfo().setMessage("Login log recorded")
+                .addKeyValue("userId", user.getId())
+                .addKeyValue("success", true)
+                .log();
+        securityConfigLog.atInfo().setMessage("OAuth2 login success").addKeyValue("subject", user.getGoogleId()).log();
+        oauth2ClientLog.debug("Set SecurityContextHolder to {}", "OAuth2AuthenticationToken [Principal=Name: [" + user.getGoogleId() + "]]");
+    }
+}
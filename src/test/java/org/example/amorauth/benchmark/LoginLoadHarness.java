@@ -0,0 +1,522 @@
+package org.example.amorauth.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.example.amorauth.AmorAuthApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 完整OAuth2登录流程的端到端压测脚手架
+ * 在进程内启动应用，并把依赖替换为本地实现：
+ * - StubIdentityProvider 代替Google（authorize / token / userinfo / JWKS，可配置延迟和失败率）
+ * - InProcessRedisServer 代替Redis
+ * - 默认使用H2的MySQL兼容模式内存库（按 db/init.sql 建表），也可以用 --jdbc-url 指向已初始化的MySQL
+ * 每个并发用户循环执行 /oauth2/authorization/google → IdP授权页 → /api/auth/google/callback，
+ * 预热期结束后统计每秒登录数以及各阶段的 p50/p99/p999，并附上应用内 auth.login.stage 指标
+ * （token / userinfo / user_upsert / cache_write / login_log）拆分回调耗时，结果同时写成JSON。
+ * --profile-reads 大于0时，每次登录后用登录后的会话连续请求 /api/auth/user，单独统计 profile-read 阶段和每秒读取数；
+ * --mode=profile 时每个并发用户只在开始时登录一次，之后持续读取资料，用于单独测量资料读取的吞吐。
+ * 运行：mvn -Plogin-load -DskipTests verify -Dload.args="--concurrency=32 --duration=60"
+ * 参数：--concurrency --duration（秒） --warmup（秒） --users（不同身份数） --mode（login/profile） --profile-reads
+ * --redis-latency-ms --tomcat-threads --idp-latency-ms --idp-failure-rate
+ * --jdbc-url --jdbc-username --jdbc-password --result
+ */
+public class LoginLoadHarness {
+
+    private static final String H2_URL = "jdbc:h2:mem:amor_auth;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final Pattern CREATE_TABLE = Pattern.compile("(?i)CREATE TABLE IF NOT EXISTS (\\w+)");
+    private static final Pattern INLINE_INDEX = Pattern.compile("INDEX (\\w+) \\(");
+    private static final List<String> STAGES = List.of("authorize-redirect", "idp-authorize", "callback", "login",
+            "profile-read");
+    private static final List<String> QUIET_LOGGERS = List.of("root", "org.example.amorauth",
+            "org.springframework.security", "org.springframework.security.oauth2",
+            "org.springframework.security.oauth2.client", "org.springframework.web.client",
+            "org.springframework.web.client.RestTemplate", "org.springframework.web", "org.apache.http",
+            "org.springframework.http", "org.springframework.boot.web.client", "httpclient.wire",
+            "org.apache.http.wire");
+
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int users;
+    private final boolean profileOnly;
+    private final int profileReads;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private String appBaseUrl;
+
+    LoginLoadHarness(int concurrency, Duration duration, Duration warmup, int users, boolean profileOnly,
+                     int profileReads) {
+        this.concurrency = concurrency;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.users = users;
+        this.profileOnly = profileOnly;
+        this.profileReads = profileReads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        boolean profileOnly = "profile".equals(options.getOrDefault("mode", "login"));
+        int profileReads = Integer.parseInt(options.getOrDefault("profile-reads", "0"));
+        long idpLatencyMillis = Long.parseLong(options.getOrDefault("idp-latency-ms", "0"));
+        double idpFailureRate = Double.parseDouble(options.getOrDefault("idp-failure-rate", "0"));
+        long redisLatencyMillis = Long.parseLong(options.getOrDefault("redis-latency-ms", "0"));
+        int tomcatThreads = Integer.parseInt(options.getOrDefault("tomcat-threads",
+                String.valueOf(Math.max(200, concurrency * 2))));
+        String jdbcUrl = options.get("jdbc-url");
+        Path resultFile = Path.of(options.getOrDefault("result", "target/login-load-result.json"));
+
+        try (InProcessRedisServer redis = new InProcessRedisServer(redisLatencyMillis);
+             StubIdentityProvider idp = new StubIdentityProvider(idpLatencyMillis, idpFailureRate)) {
+            Map<String, Object> properties = new HashMap<>();
+            if (jdbcUrl == null) {
+                initializeH2Schema();
+                properties.put("spring.datasource.url", H2_URL);
+                properties.put("spring.datasource.username", "sa");
+                properties.put("spring.datasource.password", "");
+                properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            } else {
+                properties.put("spring.datasource.url", jdbcUrl);
+                properties.put("spring.datasource.username", options.getOrDefault("jdbc-username", "root"));
+                properties.put("spring.datasource.password", options.getOrDefault("jdbc-password", ""));
+            }
+            properties.putAll(applicationProperties(redis, idp, tomcatThreads));
+
+            // 以命令行参数传入，优先级高于 application.yaml
+            String[] applicationArgs = properties.entrySet().stream()
+                    .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                    .toArray(String[]::new);
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AmorAuthApplication.class)
+                    .run(applicationArgs)) {
+                LoginLoadHarness harness = new LoginLoadHarness(concurrency, duration, warmup, users, profileOnly,
+                        profileReads);
+                harness.appBaseUrl = "http://127.0.0.1:"
+                        + ((WebServerApplicationContext) context).getWebServer().getPort();
+                Map<String, Object> result = harness.run();
+                result.put("serverStages", serverStages(context.getBean(MeterRegistry.class)));
+                result.put("idpTokenRequests", idp.getTokenRequests());
+                result.put("idpUserInfoRequests", idp.getUserInfoRequests());
+                result.put("idpInjectedFailures", idp.getInjectedFailures());
+                result.put("database", jdbcUrl == null ? "h2-mysql-mode" : jdbcUrl);
+                result.put("redisLatencyMillis", redisLatencyMillis);
+                result.put("tomcatThreads", tomcatThreads);
+                writeResult(resultFile, result);
+            }
+        }
+    }
+
+    /**
+     * 应用内 auth.login.stage 计时器的百分位（整个运行期间，含预热），拆分回调阶段的耗时构成
+     */
+    private static Map<String, Object> serverStages(MeterRegistry meterRegistry) {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        System.out.printf("%n%-20s %10s %10s %10s %10s %10s%n", "server stage", "count", "p50(ms)", "p99(ms)",
+                "p999(ms)", "errors");
+        for (Timer timer : meterRegistry.find("auth.login.stage").tag("outcome", "success").timers()) {
+            String stage = timer.getId().getTag("stage");
+            Timer errors = meterRegistry.find("auth.login.stage").tags("stage", stage, "outcome", "error").timer();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", timer.count());
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                String label = BigDecimal.valueOf(percentile.percentile()).movePointRight(2)
+                        .stripTrailingZeros().toPlainString().replace(".", "");
+                values.put("p" + label + "Millis", Math.round(percentile.value(TimeUnit.MILLISECONDS) * 100) / 100.0);
+            }
+            values.put("errors", errors != null ? errors.count() : 0);
+            stages.put(stage, values);
+            System.out.printf("%-20s %10d %10s %10s %10s %10s%n", stage, timer.count(), values.get("p50Millis"),
+                    values.get("p99Millis"), values.get("p999Millis"), values.get("errors"));
+        }
+        return stages;
+    }
+
+    private static Map<String, Object> applicationProperties(InProcessRedisServer redis, StubIdentityProvider idp,
+                                                             int tomcatThreads) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.data.redis.host", "127.0.0.1");
+        properties.put("spring.data.redis.port", String.valueOf(redis.getPort()));
+        String provider = "spring.security.oauth2.client.provider.google.";
+        properties.put(provider + "authorization-uri", idp.getBaseUrl() + "/authorize");
+        properties.put(provider + "token-uri", idp.getBaseUrl() + "/token");
+        properties.put(provider + "user-info-uri", idp.getBaseUrl() + "/userinfo");
+        properties.put(provider + "jwk-set-uri", idp.getBaseUrl() + "/jwks");
+        properties.put("spring.security.oauth2.client.registration.google.redirect-uri",
+                "{baseUrl}/api/auth/google/callback");
+        properties.put("oauth2.proxy.enabled", "false");
+        properties.put("user.warm-up.enabled", "false");
+        properties.put("oauth2.authorization-request-cookie.allow-ephemeral-key", "true");
+        // 所有请求都来自本机同一IP，放开限流避免压测被入口限流截断
+        properties.put("rate-limit.login.ip.capacity", "1000000000");
+        properties.put("rate-limit.login.ip.refill-per-second", "1000000000");
+        properties.put("server.tomcat.threads.max", String.valueOf(tomcatThreads));
+        for (String logger : QUIET_LOGGERS) {
+            properties.put("logging.level." + logger, "WARN");
+        }
+        return properties;
+    }
+
+    /**
+     * 按 db/init.sql 建表，跳过H2不支持的建库/切库语句
+     */
+    private static void initializeH2Schema() throws Exception {
+        String script;
+        try (InputStream in = LoginLoadHarness.class.getResourceAsStream("/db/init.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\n")) {
+            if (!line.trim().startsWith("--")) {
+                withoutComments.append(line).append('\n');
+            }
+        }
+        try (Connection connection = DriverManager.getConnection(H2_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String sql : withoutComments.toString().split(";")) {
+                String trimmed = sql.trim();
+                String upper = trimmed.toUpperCase(Locale.ROOT);
+                if (trimmed.isEmpty() || upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")) {
+                    continue;
+                }
+                statement.execute(toH2(trimmed));
+            }
+        }
+    }
+
+    /**
+     * H2中索引名在整个schema内唯一，按表名加前缀；去掉H2不认识的表级COLLATE选项
+     */
+    private static String toH2(String sql) {
+        Matcher table = CREATE_TABLE.matcher(sql);
+        if (table.find()) {
+            sql = INLINE_INDEX.matcher(sql).replaceAll("INDEX " + table.group(1) + "_$1 (");
+        }
+        return sql.replaceAll("(?i)\\s*COLLATE=\\w+", "");
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        List<Worker> workers = new ArrayList<>(concurrency);
+        List<Thread> threads = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(measureFrom, end);
+            Thread thread = new Thread(worker, "login-load-" + i);
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, LongList> merged = new LinkedHashMap<>();
+        for (String stage : STAGES) {
+            LongList all = new LongList();
+            for (Worker worker : workers) {
+                all.addAll(worker.latencies.get(stage));
+            }
+            merged.put(stage, all);
+        }
+        long logins = merged.get("login").size;
+        long reads = merged.get("profile-read").size;
+        long failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        double seconds = duration.toNanos() / 1e9;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("concurrency", concurrency);
+        result.put("durationSeconds", duration.toSeconds());
+        result.put("successfulLogins", logins);
+        result.put("failedLogins", failed);
+        result.put("loginsPerSecond", Math.round(logins / seconds * 10) / 10.0);
+        result.put("mode", profileOnly ? "profile" : "login");
+        result.put("profileReadsPerLogin", profileReads);
+        result.put("profileReadsPerSecond", Math.round(reads / seconds * 10) / 10.0);
+        Map<String, Object> stages = new LinkedHashMap<>();
+        System.out.printf("%nconcurrency=%d duration=%ds logins=%d failed=%d logins/sec=%.1f profile-reads/sec=%.1f%n",
+                concurrency, duration.toSeconds(), logins, failed, logins / seconds, reads / seconds);
+        System.out.printf("%-20s %10s %10s %10s %10s%n", "stage", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        for (Map.Entry<String, LongList> entry : merged.entrySet()) {
+            long[] sorted = entry.getValue().sorted();
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("count", sorted.length);
+            percentiles.put("p50Millis", millis(percentile(sorted, 0.50)));
+            percentiles.put("p99Millis", millis(percentile(sorted, 0.99)));
+            percentiles.put("p999Millis", millis(percentile(sorted, 0.999)));
+            percentiles.put("maxMillis", millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0));
+            stages.put(entry.getKey(), percentiles);
+            System.out.printf("%-20s %10.2f %10.2f %10.2f %10.2f%n", entry.getKey(),
+                    percentiles.get("p50Millis"), percentiles.get("p99Millis"),
+                    percentiles.get("p999Millis"), percentiles.get("maxMillis"));
+        }
+        result.put("stages", stages);
+        Map<String, Long> failureCounts = new LinkedHashMap<>();
+        failures.forEach((reason, count) -> failureCounts.put(reason, count.sum()));
+        if (!failureCounts.isEmpty()) {
+            System.out.println("failures: " + failureCounts);
+        }
+        result.put("failures", failureCounts);
+        return result;
+    }
+
+    /**
+     * 一个并发用户：每次登录都是新的浏览器会话（不复用Cookie）
+     */
+    private final class Worker implements Runnable {
+
+        private final long measureFrom;
+        private final long end;
+        private final Map<String, LongList> latencies = new HashMap<>();
+
+        private Worker(long measureFrom, long end) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (String stage : STAGES) {
+                latencies.put(stage, new LongList());
+            }
+        }
+
+        @Override
+        public void run() {
+            if (profileOnly) {
+                readProfiles();
+                return;
+            }
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                boolean measured = now >= measureFrom;
+                try {
+                    login(ThreadLocalRandom.current().nextInt(users), measured);
+                } catch (LoginFailure e) {
+                    if (measured) {
+                        failures.computeIfAbsent(e.getMessage(), key -> new LongAdder()).increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void readProfiles() {
+            try {
+                String cookie = login(ThreadLocalRandom.current().nextInt(users), false);
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    readProfile(cookie, now >= measureFrom);
+                }
+            } catch (LoginFailure e) {
+                failures.computeIfAbsent(e.getMessage(), key -> new LongAdder()).increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return 登录后的会话Cookie
+         */
+        private String login(int user, boolean measured) throws LoginFailure, InterruptedException {
+            long loginStart = System.nanoTime();
+
+            // 1. 应用生成授权请求并重定向到IdP，授权请求保存在加密Cookie中
+            HttpResponse<String> redirect = send("authorize-redirect",
+                    HttpRequest.newBuilder(URI.create(appBaseUrl + "/oauth2/authorization/google")).build());
+            String authorizationCookie = cookies(redirect);
+            long authorizeRedirected = System.nanoTime();
+
+            // 2. IdP授权页带着code和state重定向回回调地址
+            String authorizeUrl = location("authorize-redirect", redirect) + "&user=" + user;
+            HttpResponse<String> approved = send("idp-authorize",
+                    HttpRequest.newBuilder(URI.create(authorizeUrl)).build());
+            String callbackUrl = location("idp-authorize", approved);
+            long idpApproved = System.nanoTime();
+
+            // 3. 回调：换取令牌、拉取用户信息、写入用户和登录日志
+            HttpRequest.Builder callback = HttpRequest.newBuilder(URI.create(callbackUrl));
+            if (authorizationCookie != null) {
+                callback.header("Cookie", authorizationCookie);
+            }
+            HttpResponse<String> completed = send("callback", callback.build());
+            if (completed.statusCode() != 200 || !completed.body().contains("\"success\":true")) {
+                throw new LoginFailure("callback:" + completed.statusCode());
+            }
+            long loginEnd = System.nanoTime();
+
+            if (measured) {
+                latencies.get("authorize-redirect").add(authorizeRedirected - loginStart);
+                latencies.get("idp-authorize").add(idpApproved - authorizeRedirected);
+                latencies.get("callback").add(loginEnd - idpApproved);
+                latencies.get("login").add(loginEnd - loginStart);
+            }
+
+            // 4. 登录后读取资料，使用回调响应中创建的会话Cookie
+            String authenticatedCookie = cookies(completed);
+            if (authenticatedCookie == null) {
+                throw new LoginFailure("callback:missing-session");
+            }
+            for (int i = 0; i < profileReads; i++) {
+                readProfile(authenticatedCookie, measured);
+            }
+            return authenticatedCookie;
+        }
+
+        private void readProfile(String cookie, boolean measured) throws LoginFailure, InterruptedException {
+            long readStart = System.nanoTime();
+            HttpResponse<String> profile = send("profile-read", HttpRequest.newBuilder(
+                    URI.create(appBaseUrl + "/api/auth/user")).header("Cookie", cookie).build());
+            if (profile.statusCode() != 200 || !profile.body().contains("\"authenticated\":true")) {
+                throw new LoginFailure("profile-read:" + profile.statusCode());
+            }
+            if (measured) {
+                latencies.get("profile-read").add(System.nanoTime() - readStart);
+            }
+        }
+    }
+
+    private HttpResponse<String> send(String stage, HttpRequest request) throws LoginFailure, InterruptedException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new LoginFailure(stage + ":" + e.getClass().getSimpleName());
+        }
+    }
+
+    private static String location(String stage, HttpResponse<String> response) throws LoginFailure {
+        if (response.statusCode() != 302) {
+            throw new LoginFailure(stage + ":" + response.statusCode());
+        }
+        return response.headers().firstValue("Location")
+                .orElseThrow(() -> new LoginFailure(stage + ":missing-location"));
+    }
+
+    /**
+     * 响应设置的Cookie（不含被清除的），拼成请求的Cookie头
+     */
+    private static String cookies(HttpResponse<String> response) {
+        StringBuilder cookies = new StringBuilder();
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            if (header.contains("Max-Age=0")) {
+                continue;
+            }
+            int end = header.indexOf(';');
+            if (!cookies.isEmpty()) {
+                cookies.append("; ");
+            }
+            cookies.append(end > 0 ? header.substring(0, end) : header);
+        }
+        return cookies.isEmpty() ? null : cookies.toString();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int equals = arg.indexOf('=');
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    private static void writeResult(Path resultFile, Map<String, Object> result) throws IOException {
+        if (resultFile.getParent() != null) {
+            Files.createDirectories(resultFile.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile.toFile(), result);
+        System.out.println("result written to " + resultFile.toAbsolutePath());
+    }
+
+    private static final class LoginFailure extends Exception {
+
+        private LoginFailure(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    /**
+     * 不装箱的long动态数组
+     */
+    private static final class LongList {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.amorauth.benchmark;
+
+import org.example.amorauth.config.RedisConfig;
+import org.example.amorauth.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisConfig 中值序列化器（带默认类型信息的Jackson）编解码 User 的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    private RedisSerializer<Object> serializer;
+    private User user;
+    private byte[] encoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        // 只取序列化器，连接工厂不会被启动
+        RedisTemplate<String, Object> template = new RedisConfig().redisTemplate(new LettuceConnectionFactory());
+        serializer = (RedisSerializer<Object>) template.getValueSerializer();
+        user = BenchmarkFixtures.user(42L);
+        encoded = serializer.serialize(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() {
+        return serializer.serialize(user);
+    }
+
+    @Benchmark
+    public Object deserializeUser() {
+        return serializer.deserialize(encoded);
+    }
+}
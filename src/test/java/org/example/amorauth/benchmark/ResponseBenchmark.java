@@ -0,0 +1,57 @@
+package org.example.amorauth.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.amorauth.common.constant.HttpStatus;
+import org.example.amorauth.common.domain.R;
+import org.example.amorauth.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * R 响应体的构造与序列化耗时，ObjectMapper 与 Spring Boot 自动配置的默认设置一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+    private ObjectMapper objectMapper;
+    private User user;
+    private R<User> userResponse;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        user = BenchmarkFixtures.user(42L);
+        userResponse = R.ok(user);
+    }
+
+    @Benchmark
+    public R<User> constructOk() {
+        return R.ok(user);
+    }
+
+    @Benchmark
+    public byte[] serializeOk() throws Exception {
+        return objectMapper.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public byte[] constructAndSerializeFail() throws Exception {
+        return objectMapper.writeValueAsBytes(R.fail(HttpStatus.UNAUTHORIZED, "未授权访问"));
+    }
+}
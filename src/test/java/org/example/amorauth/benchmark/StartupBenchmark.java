@@ -0,0 +1,155 @@
+package org.example.amorauth.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动耗时基准
+ * 分别以 普通JVM / Spring AOT / AOT+AppCDS 三种方式启动应用，统计：
+ * - time-to-ready：进程启动到输出 "Started AmorAuthApplication"（ApplicationReadyEvent之前）的耗时
+ * - time-to-first-request：进程启动到第一个HTTP请求得到响应的耗时
+ * 启动不依赖MySQL和Redis（连接均为懒加载）。先执行 mvn -Pstartup-optimized package 生成 target/cds，然后运行：
+ * java -cp target/test-classes org.example.amorauth.benchmark.StartupBenchmark [target/cds] [次数]
+ */
+public class StartupBenchmark {
+
+    private static final String READY_MARKER = "Started AmorAuthApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    public static void main(String[] args) throws Exception {
+        Path cdsDirectory = Path.of(args.length > 0 ? args[0] : "target/cds");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path jar;
+        try (var files = Files.list(cdsDirectory)) {
+            jar = files.filter(path -> path.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + cdsDirectory
+                            + ", run mvn -Pstartup-optimized package first"));
+        }
+        Path archive = cdsDirectory.resolve("application.jsa");
+
+        List<Mode> modes = List.of(
+                new Mode("baseline", List.of()),
+                new Mode("aot", List.of("-Dspring.aot.enabled=true")),
+                new Mode("aot+cds", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"))
+        );
+
+        System.out.printf("%-10s %22s %22s%n", "mode", "time-to-ready(ms)", "time-to-first-req(ms)");
+        for (Mode mode : modes) {
+            long[] ready = new long[runs];
+            long[] firstRequest = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] result = measure(jar, mode.jvmArgs());
+                ready[i] = result[0];
+                firstRequest[i] = result[1];
+            }
+            System.out.printf("%-10s %22s %22s%n", mode.name(), summary(ready), summary(firstRequest));
+        }
+    }
+
+    /**
+     * @return [time-to-ready, time-to-first-request]，单位毫秒
+     */
+    private static long[] measure(Path jar, List<String> jvmArgs) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Dserver.port=" + port);
+        command.add("-Doauth2.authorization-request-cookie.allow-ephemeral-key=true");
+        command.add("-Dlogging.level.root=INFO");
+        command.add("-Dlogging.level.org.springframework=INFO");
+        command.add("-Dlogging.level.org.example.amorauth=INFO");
+        command.add("-jar");
+        command.add(jar.toString());
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try {
+            CompletableFuture<Long> ready = new CompletableFuture<>();
+            Thread reader = new Thread(() -> waitForReady(process, start, ready), "startup-log-reader");
+            reader.setDaemon(true);
+            reader.start();
+            long firstRequest = waitForFirstResponse(port, start, process);
+            return new long[]{ready.get(STARTUP_TIMEOUT.toSeconds(), TimeUnit.SECONDS), firstRequest};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 读取子进程输出直到结束（避免管道写满阻塞子进程），看到启动完成日志时完成ready
+     */
+    private static void waitForReady(Process process, long start, CompletableFuture<Long> ready) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!ready.isDone() && line.contains(READY_MARKER)) {
+                    ready.complete(elapsedMillis(start));
+                }
+            }
+            ready.completeExceptionally(new IllegalStateException("Application exited before becoming ready"));
+        } catch (IOException e) {
+            ready.completeExceptionally(e);
+        }
+    }
+
+    private static long waitForFirstResponse(int port, long start, Process process) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/auth/error"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with code " + process.exitValue());
+            }
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                return elapsedMillis(start);
+            } catch (IOException e) {
+                Thread.sleep(5);
+            }
+        }
+        throw new IllegalStateException("Application did not answer within " + STARTUP_TIMEOUT);
+    }
+
+    private static String summary(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long median = sorted[sorted.length / 2];
+        return median + " (min " + sorted[0] + ")";
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Mode(String name, List<String> jvmArgs) {
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.amorauth.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地桩身份提供方，模拟Google的 authorize / token / userinfo / JWKS 端点
+ * 授权码和访问令牌中直接编码用户编号，token与userinfo按配置注入延迟和失败（HTTP 500），
+ * 用于离线压测完整的OAuth2登录流程
+ */
+public class StubIdentityProvider implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong userInfoRequests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    /**
+     * @param latencyMillis token和userinfo端点每次响应前的固定延迟
+     * @param failureRate   token和userinfo端点返回500的概率（0~1）
+     */
+    public StubIdentityProvider(long latencyMillis, double failureRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-idp");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/token", this::token);
+        server.createContext("/userinfo", this::userInfo);
+        server.createContext("/jwks", exchange -> respond(exchange, 200, "{\"keys\":[]}"));
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public long getUserInfoRequests() {
+        return userInfoRequests.get();
+    }
+
+    public long getInjectedFailures() {
+        return injectedFailures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 浏览器跳转到的授权页：不做交互，直接带着授权码重定向回 redirect_uri；
+     * 压测方通过额外的 user 参数指定本次登录的用户编号
+     */
+    private void authorize(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        String redirectUri = query.get("redirect_uri");
+        String state = query.get("state");
+        if (redirectUri == null || state == null) {
+            respond(exchange, 400, "{\"error\":\"invalid_request\"}");
+            return;
+        }
+        String code = "code-" + query.getOrDefault("user", "0") + "-" + sequence.incrementAndGet();
+        String location = redirectUri + (redirectUri.contains("?") ? "&" : "?")
+                + "code=" + encode(code) + "&state=" + encode(state);
+        exchange.getResponseHeaders().set("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        tokenRequests.incrementAndGet();
+        Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        if (simulateLatencyAndFailure(exchange)) {
+            return;
+        }
+        String code = form.get("code");
+        if (code == null || !code.startsWith("code-")) {
+            respond(exchange, 400, "{\"error\":\"invalid_grant\"}");
+            return;
+        }
+        String user = code.substring("code-".length(), code.lastIndexOf('-'));
+        respond(exchange, 200, "{\"access_token\":\"token-" + user + "-" + sequence.incrementAndGet() + "\","
+                + "\"token_type\":\"Bearer\",\"expires_in\":3599,\"scope\":\"profile email\"}");
+    }
+
+    private void userInfo(HttpExchange exchange) throws IOException {
+        userInfoRequests.incrementAndGet();
+        if (simulateLatencyAndFailure(exchange)) {
+            return;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer token-")) {
+            respond(exchange, 401, "{\"error\":\"invalid_token\"}");
+            return;
+        }
+        String token = authorization.substring("Bearer token-".length());
+        String user = token.substring(0, token.lastIndexOf('-'));
+        respond(exchange, 200, "{\"sub\":\"stub-" + user + "\","
+                + "\"email\":\"loadtest-" + user + "@example.com\","
+                + "\"email_verified\":true,"
+                + "\"name\":\"Load Test " + user + "\","
+                + "\"picture\":\"https://example.com/avatar/" + user + ".png\","
+                + "\"locale\":\"zh-CN\"}");
+    }
+
+    /**
+     * @return 已注入失败并写出响应时返回 true
+     */
+    private boolean simulateLatencyAndFailure(HttpExchange exchange) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            injectedFailures.incrementAndGet();
+            respond(exchange, 500, "{\"error\":\"server_error\"}");
+            return true;
+        }
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static Map<String, String> parseForm(String raw) {
+        Map<String, String> values = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return values;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.amorauth.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.amorauth.config.RedisConfig;
+import org.example.amorauth.entity.User;
+import org.example.amorauth.mapper.UserMapper;
+import org.example.amorauth.service.LocalUserCache;
+import org.example.amorauth.service.LoginMetrics;
+import org.example.amorauth.service.RedisCircuitBreaker;
+import org.example.amorauth.service.UserCacheKeys;
+import org.example.amorauth.service.UserChangePublisher;
+import org.example.amorauth.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService 缓存读取路径的耗时
+ * Redis 由 InProcessRedisServer 代替（真实的Lettuce连接与序列化，本机回环网络），
+ * 数据库由内存中的 UserMapper 实现代替；cacheMiss 每次先删除缓存key，测量的是删除 + 未命中 + 回填
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserCacheBenchmark {
+
+    private static final int USER_COUNT = 1000;
+    private static final int BATCH_SIZE = 100;
+
+    private InProcessRedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private UserService userService;
+    private User hotUser;
+    private List<Long> batchIds;
+
+    @Setup
+    public void setup() throws Exception {
+        redisServer = new InProcessRedisServer();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", redisServer.getPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+
+        Map<Long, User> users = new HashMap<>();
+        for (long id = 1; id <= USER_COUNT; id++) {
+            users.put(id, BenchmarkFixtures.user(id));
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RedisCircuitBreaker redisCircuitBreaker = new RedisCircuitBreaker(stringRedisTemplate, meterRegistry, 5, 5000);
+        userService = new UserService(new InMemoryUserMapper(users), redisTemplate, stringRedisTemplate,
+                new UserChangePublisher(stringRedisTemplate, redisCircuitBreaker, "user:changes", 1000),
+                new LoginMetrics(meterRegistry), redisCircuitBreaker, new LocalUserCache(30000, Duration.ofSeconds(60)));
+
+        batchIds = new ArrayList<>(BATCH_SIZE);
+        for (long id = 1; id <= BATCH_SIZE; id++) {
+            batchIds.add(id);
+        }
+        // 预先填充缓存
+        userService.findByIds(users.keySet());
+        hotUser = users.get(1L);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.close();
+    }
+
+    @Benchmark
+    public User findByIdHit() {
+        return userService.findById(hotUser.getId());
+    }
+
+    @Benchmark
+    public User findByGoogleIdHit() {
+        return userService.findByGoogleId(hotUser.getGoogleId());
+    }
+
+    @Benchmark
+    public String profileETag() {
+        return userService.getProfileETag(hotUser.getGoogleId());
+    }
+
+    @Benchmark
+    public Map<Long, User> findByIdsBatchHit() {
+        return userService.findByIds(batchIds);
+    }
+
+    @Benchmark
+    public User findByIdMiss() {
+        redisTemplate.delete(UserCacheKeys.idIndex(hotUser.getId()));
+        return userService.findById(hotUser.getId());
+    }
+
+    /**
+     * 代替MySQL的内存实现，只支持查询
+     */
+    private record InMemoryUserMapper(Map<Long, User> users) implements UserMapper {
+
+        @Override
+        public User findByGoogleId(String googleId) {
+            return users.values().stream().filter(user -> user.getGoogleId().equals(googleId)).findFirst().orElse(null);
+        }
+
+        @Override
+        public User findByEmail(String email) {
+            return users.values().stream().filter(user -> user.getEmail().equals(email)).findFirst().orElse(null);
+        }
+
+        @Override
+        public int insertUser(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int updateUser(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User findById(Long id) {
+            return users.get(id);
+        }
+
+        @Override
+        public List<User> findByKeys(Collection<Long> ids, Collection<String> googleIds, Collection<String> emails) {
+            List<User> result = new ArrayList<>();
+            for (Long id : ids) {
+                User user = users.get(id);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+            for (String googleId : googleIds) {
+                User user = findByGoogleId(googleId);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+            for (String email : emails) {
+                User user = findByEmail(email);
+                if (user != null) {
+                    result.add(user);
+                }
+            }
+            return result;
+        }
+    }
+}
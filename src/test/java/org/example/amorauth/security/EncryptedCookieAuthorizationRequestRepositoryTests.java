@@ -0,0 +1,152 @@
+package org.example.amorauth.security;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.endpoint.PkceParameterNames;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncryptedCookieAuthorizationRequestRepositoryTests {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final EncryptedCookieAuthorizationRequestRepository repository = repository(SECRET, Duration.ofMinutes(3));
+
+    @Test
+    void roundTripsStateNonceAndPkceAttributes() {
+        OAuth2AuthorizationRequest saved = authorizationRequest("state-1");
+        Cookie cookie = save(repository, saved);
+
+        OAuth2AuthorizationRequest loaded = repository.loadAuthorizationRequest(callback("state-1", cookie));
+
+        assertNotNull(loaded);
+        assertEquals("state-1", loaded.getState());
+        assertEquals(saved.getAuthorizationUri(), loaded.getAuthorizationUri());
+        assertEquals(saved.getClientId(), loaded.getClientId());
+        assertEquals(saved.getRedirectUri(), loaded.getRedirectUri());
+        assertEquals(saved.getScopes(), loaded.getScopes());
+        assertEquals(saved.getAuthorizationRequestUri(), loaded.getAuthorizationRequestUri());
+        assertEquals("nonce-value", loaded.getAttribute(OidcParameterNames.NONCE));
+        assertEquals("verifier-value", loaded.getAttribute(PkceParameterNames.CODE_VERIFIER));
+        assertEquals("google", loaded.getAttribute(OAuth2ParameterNames.REGISTRATION_ID));
+        assertEquals("challenge-value", loaded.getAdditionalParameters().get(PkceParameterNames.CODE_CHALLENGE));
+        assertEquals("S256", loaded.getAdditionalParameters().get(PkceParameterNames.CODE_CHALLENGE_METHOD));
+    }
+
+    @Test
+    void rejectsTamperedCiphertext() {
+        Cookie cookie = save(repository, authorizationRequest("state-1"));
+        char[] value = cookie.getValue().toCharArray();
+        // 末位字符可能只含填充位，改中间的字符
+        int middle = value.length / 2;
+        value[middle] = value[middle] == 'A' ? 'B' : 'A';
+
+        assertNull(repository.loadAuthorizationRequest(callback("state-1", new Cookie(cookie.getName(), new String(value)))));
+    }
+
+    @Test
+    void rejectsCookieSealedWithAnotherKey() {
+        Cookie cookie = save(repository(OTHER_SECRET, Duration.ofMinutes(3)), authorizationRequest("state-1"));
+
+        assertNull(repository.loadAuthorizationRequest(callback("state-1", cookie)));
+    }
+
+    @Test
+    void rejectsExpiredPayload() {
+        Cookie cookie = save(repository(SECRET, Duration.ofSeconds(-1)), authorizationRequest("state-1"));
+
+        assertNull(repository.loadAuthorizationRequest(callback("state-1", cookie)));
+    }
+
+    @Test
+    void returnsNullWhenStateDoesNotMatch() {
+        Cookie cookie = save(repository, authorizationRequest("state-1"));
+
+        assertNull(repository.loadAuthorizationRequest(callback("state-2", cookie)));
+        assertNull(repository.loadAuthorizationRequest(callback(null, cookie)));
+    }
+
+    @Test
+    void removeClearsCookie() {
+        Cookie cookie = save(repository, authorizationRequest("state-1"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        OAuth2AuthorizationRequest removed = repository.removeAuthorizationRequest(callback("state-1", cookie), response);
+
+        assertNotNull(removed);
+        String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(setCookie);
+        assertTrue(setCookie.startsWith(cookie.getName() + "=;"), setCookie);
+        assertTrue(setCookie.contains("Max-Age=0"), setCookie);
+    }
+
+    @Test
+    void requiresSecretUnlessEphemeralKeyAllowed() {
+        assertThrows(IllegalStateException.class,
+                () -> new EncryptedCookieAuthorizationRequestRepository("", false, Duration.ofMinutes(3)));
+        assertThrows(IllegalStateException.class,
+                () -> new EncryptedCookieAuthorizationRequestRepository("not a base64 key!", false, Duration.ofMinutes(3)));
+        assertThrows(IllegalStateException.class, () -> new EncryptedCookieAuthorizationRequestRepository(
+                Base64.getEncoder().encodeToString(new byte[16]), false, Duration.ofMinutes(3)));
+        assertNotNull(new EncryptedCookieAuthorizationRequestRepository("", true, Duration.ofMinutes(3)));
+    }
+
+    private static EncryptedCookieAuthorizationRequestRepository repository(String secret, Duration maxAge) {
+        return new EncryptedCookieAuthorizationRequestRepository(secret, false, maxAge);
+    }
+
+    private static OAuth2AuthorizationRequest authorizationRequest(String state) {
+        return OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri("https://accounts.example.com/o/oauth2/auth")
+                .clientId("client-id")
+                .redirectUri("https://app.example.com/api/auth/google/callback")
+                .scopes(Set.of("openid", "email", "profile"))
+                .state(state)
+                .additionalParameters(Map.of(
+                        PkceParameterNames.CODE_CHALLENGE, "challenge-value",
+                        PkceParameterNames.CODE_CHALLENGE_METHOD, "S256"))
+                .attributes(Map.of(
+                        OAuth2ParameterNames.REGISTRATION_ID, "google",
+                        OidcParameterNames.NONCE, "nonce-value",
+                        PkceParameterNames.CODE_VERIFIER, "verifier-value"))
+                .authorizationRequestUri("https://accounts.example.com/o/oauth2/auth?state=" + state)
+                .build();
+    }
+
+    private static Cookie save(EncryptedCookieAuthorizationRequestRepository repository,
+                               OAuth2AuthorizationRequest authorizationRequest) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveAuthorizationRequest(authorizationRequest, new MockHttpServletRequest(), response);
+        String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(setCookie);
+        String pair = setCookie.substring(0, setCookie.indexOf(';'));
+        int separator = pair.indexOf('=');
+        return new Cookie(pair.substring(0, separator), pair.substring(separator + 1));
+    }
+
+    private static MockHttpServletRequest callback(String state, Cookie cookie) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/google/callback");
+        if (state != null) {
+            request.setParameter(OAuth2ParameterNames.STATE, state);
+        }
+        request.setParameter(OAuth2ParameterNames.CODE, "code-1");
+        request.setCookies(cookie);
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.amorauth.service;
+
+import org.example.amorauth.common.util.CidrTrie;
+import org.example.amorauth.common.util.IpAddresses;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientAddressResolverTests {
+
+    private final ClientAddressResolver resolver =
+            new ClientAddressResolver(List.of("127.0.0.0/8", "10.0.0.0/8", "fd00::/8"));
+
+    @Test
+    void parsesAndFormatsAddresses() {
+        assertArrayEquals(new byte[]{(byte) 192, (byte) 168, 1, 20}, IpAddresses.parse("192.168.1.20"));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, IpAddresses.parse("::ffff:1.2.3.4"));
+        assertEquals("2001:db8::1", IpAddresses.normalize("2001:0DB8:0:0:0:0:0:1"));
+        assertEquals("2001:db8:0:1:1:1:1:1", IpAddresses.normalize("[2001:db8:0:1:1:1:1:1]"));
+        assertEquals("::1", IpAddresses.normalize("0:0:0:0:0:0:0:1"));
+        assertEquals("fe80::1", IpAddresses.normalize("fe80::1%eth0"));
+        assertNull(IpAddresses.parse("unknown"));
+        assertNull(IpAddresses.parse("256.1.1.1"));
+        assertNull(IpAddresses.parse("1::2::3"));
+        assertNull(IpAddresses.parse("1.2.3.4:8080"));
+    }
+
+    @Test
+    void matchesCidrPrefixes() {
+        CidrTrie trie = new CidrTrie();
+        trie.add("10.0.0.0/8");
+        trie.add("2001:db8::/32");
+        trie.add("192.168.1.7");
+
+        assertTrue(trie.contains(IpAddresses.parse("10.255.1.1")));
+        assertFalse(trie.contains(IpAddresses.parse("11.0.0.1")));
+        assertTrue(trie.contains(IpAddresses.parse("2001:db8:ffff::1")));
+        assertFalse(trie.contains(IpAddresses.parse("2001:db9::1")));
+        assertTrue(trie.contains(IpAddresses.parse("192.168.1.7")));
+        assertFalse(trie.contains(IpAddresses.parse("192.168.1.8")));
+    }
+
+    @Test
+    void ignoresForwardedHeadersFromUntrustedPeers() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("203.0.113.9");
+        request.addHeader("X-Forwarded-For", "1.1.1.1");
+
+        assertEquals("203.0.113.9", resolver.resolve(request));
+    }
+
+    @Test
+    void skipsTrustedHopsFromTheRight() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("X-Forwarded-For", "6.6.6.6, 198.51.100.7, fd00::3 ,10.0.0.1");
+
+        assertEquals("198.51.100.7", resolver.resolve(request));
+    }
+
+    @Test
+    void cachesResultOnRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("127.0.0.1");
+        request.addHeader("X-Real-IP", "198.51.100.8");
+
+        assertEquals("198.51.100.8", resolver.resolve(request));
+        assertEquals("198.51.100.8", request.getAttribute(ClientAddressResolver.CLIENT_ADDRESS_ATTRIBUTE));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.amorauth.service;
+
+import org.example.amorauth.dto.LoginLogDto;
+import org.example.amorauth.dto.LoginLogQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoginLogSegmentTests {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsRowsAcrossBlocks() throws Exception {
+        LoginLogSegment segment = LoginLogSegment.write(directory, rows(5000));
+
+        assertEquals(5000, segment.getRowCount());
+        assertEquals(1, segment.getMinId());
+        assertEquals(5000, segment.getMaxId());
+
+        LoginLogSegment reopened = LoginLogSegment.open(segment.getPath());
+        List<LoginLogDto> all = new ArrayList<>();
+        reopened.scan(new LoginLogQuery(), all::add);
+        assertEquals(5000, all.size());
+
+        LoginLogDto row = all.stream().filter(dto -> dto.getId() == 42).findFirst().orElseThrow();
+        assertEquals(42L, row.getUserId());
+        assertEquals(BASE.plusMinutes(42), row.getLoginTime());
+        assertEquals("10.0.0.42", row.getIpAddress());
+        assertEquals(0, row.getUserAgentId());
+        assertEquals(false, row.getSuccess());
+        assertEquals("error 42", row.getErrorMessage());
+        assertNull(all.stream().filter(dto -> dto.getId() == 43).findFirst().orElseThrow().getErrorMessage());
+    }
+
+    @Test
+    void filtersByUserTimeRangeAndResult() throws Exception {
+        LoginLogSegment segment = LoginLogSegment.write(directory, rows(5000));
+
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(7L);
+        query.setStartTime(BASE.plusMinutes(1000));
+        query.setEndTime(BASE.plusMinutes(2000));
+        List<LoginLogDto> matched = new ArrayList<>();
+        segment.scan(query, matched::add);
+        long expected = rows(5000).stream()
+                .filter(dto -> dto.getUserId() == 7 && dto.getId() >= 1000 && dto.getId() < 2000)
+                .count();
+        assertEquals(expected, matched.size());
+
+        query.setSuccess(false);
+        List<LoginLogDto> failures = new ArrayList<>();
+        segment.scan(query, failures::add);
+        assertEquals(matched.stream().filter(dto -> !dto.getSuccess()).count(), failures.size());
+    }
+
+    @Test
+    void archiveMergesSegmentsNewestFirst() throws Exception {
+        LoginLogArchive archive = new LoginLogArchive(directory);
+        archive.append(rows(1, 3000));
+        archive.append(rows(3001, 6000));
+
+        LoginLogQuery query = new LoginLogQuery();
+        query.setUserId(3L);
+        List<LoginLogDto> newest = archive.find(query, 5);
+        assertEquals(List.of(5953L, 5903L, 5853L, 5803L, 5753L), newest.stream().map(LoginLogDto::getId).toList());
+        assertEquals(120, archive.count(query, null));
+        // id >= 3001 的行仍在热表中，不计入
+        assertEquals(60, archive.count(query, 3001L));
+
+        LoginLogArchive reloaded = new LoginLogArchive(directory);
+        reloaded.loadSegments();
+        assertEquals(2, reloaded.getSegments().size());
+        assertEquals(BASE.plusMinutes(6000), reloaded.getMaxArchivedTime());
+    }
+
+    @Test
+    void archiveSeesSegmentsWrittenByAnotherInstance() throws Exception {
+        LoginLogArchive reader = new LoginLogArchive(directory);
+        reader.loadSegments();
+        assertEquals(0, reader.getSegments().size());
+
+        LoginLogArchive writer = new LoginLogArchive(directory);
+        LoginLogSegment segment = writer.append(rows(1, 3000));
+        assertEquals(3000, reader.count(new LoginLogQuery(), null));
+
+        Files.delete(segment.getPath());
+        assertEquals(0, reader.count(new LoginLogQuery(), null));
+    }
+
+    private static List<LoginLogDto> rows(int count) {
+        return rows(1, count);
+    }
+
+    private static List<LoginLogDto> rows(int fromId, int toId) {
+        List<LoginLogDto> rows = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            LoginLogDto dto = new LoginLogDto();
+            dto.setId(id);
+            dto.setUserId(id % 50);
+            dto.setLoginTime(BASE.plusMinutes(id));
+            dto.setIpAddress("10.0.0." + (id % 256));
+            dto.setUserAgentId((int) (id % 7));
+            dto.setLoginType("GOOGLE_OAUTH2");
+            dto.setSuccess(id % 3 != 0);
+            dto.setErrorMessage(id % 3 == 0 ? "error " + id : null);
+            rows.add(dto);
+        }
+        return rows;
+    }
+}
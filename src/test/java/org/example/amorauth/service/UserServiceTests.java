@@ -0,0 +1,90 @@
+package org.example.amorauth.service;
+
+import org.example.amorauth.dto.UserBatchLookupResult;
+import org.example.amorauth.entity.User;
+import org.example.amorauth.mapper.UserMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTests {
+
+    private final UserMapper userMapper = mock(UserMapper.class);
+    private final RedisCircuitBreaker redisCircuitBreaker = mock(RedisCircuitBreaker.class);
+    private final LocalUserCache localUserCache = new LocalUserCache(1000, Duration.ofMinutes(1));
+
+    @SuppressWarnings("unchecked")
+    private final UserService userService = new UserService(userMapper, mock(RedisTemplate.class),
+            mock(StringRedisTemplate.class), mock(UserChangePublisher.class), mock(LoginMetrics.class),
+            redisCircuitBreaker, localUserCache);
+
+    @Test
+    void batchLookupMatchesDatabaseEmailsIgnoringCase() {
+        User user = user(1L, "g-1", "foo@example.com");
+        when(userMapper.findByKeys(anyCollection(), anyCollection(), anyCollection())).thenReturn(List.of(user));
+
+        UserBatchLookupResult result = userService.findUsers(List.of(), List.of(), List.of("Foo@Example.com"));
+
+        assertSame(user, result.getByEmail().get("Foo@Example.com"));
+        assertEquals(1, result.getByEmail().size());
+    }
+
+    @Test
+    void batchLookupMatchesLocallyCachedEmailsIgnoringCase() {
+        // Redis熔断时走本地缓存
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(redisCircuitBreaker).run(any(), any());
+        User user = user(1L, "g-1", "foo@example.com");
+        localUserCache.put(user);
+
+        UserBatchLookupResult result = userService.findUsers(List.of(), List.of(), List.of("FOO@example.com"));
+
+        assertSame(user, result.getByEmail().get("FOO@example.com"));
+        verify(userMapper, never()).findByKeys(anyCollection(), anyCollection(), anyCollection());
+    }
+
+    @Test
+    void loginUpdateRetriesWithStoredVersionAfterConcurrentUpdate() {
+        User stale = user(1L, "g-1", "foo@example.com");
+        stale.setVersion(4L);
+        User fresh = user(1L, "g-1", "foo@example.com");
+        fresh.setVersion(5L);
+        when(userMapper.findByGoogleId("g-1")).thenReturn(stale, fresh);
+        // 第一次更新时版本号4已被其他节点改为5
+        when(userMapper.updateUser(any())).thenReturn(0, 1);
+
+        User updated = userService.processOAuth2User(new DefaultOAuth2User(List.of(),
+                Map.of("sub", "g-1", "email", "foo@example.com", "name", "Foo"), "sub"));
+
+        assertSame(fresh, updated);
+        assertEquals(6L, updated.getVersion());
+        assertEquals("Foo", updated.getName());
+        verify(userMapper, times(2)).updateUser(any());
+    }
+
+    private static User user(Long id, String googleId, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setGoogleId(googleId);
+        user.setEmail(email);
+        return user;
+    }
+}